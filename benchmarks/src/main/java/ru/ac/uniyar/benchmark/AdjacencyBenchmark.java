@@ -0,0 +1,89 @@
+package ru.ac.uniyar.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ac.uniyar.utils.graph.BitAdjacency;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class AdjacencyBenchmark {
+    private static final int QUERIES = 1 << 14;
+
+    @Param({"512", "2048", "4096"})
+    public int size;
+
+    private BitAdjacency adjacency;
+    private Map<Integer, BitSet> baseline;
+    private int[] us;
+    private int[] vs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        adjacency = new BitAdjacency(size);
+        baseline = new HashMap<>();
+        for (int v = 1; v <= size; ++v) {
+            baseline.put(v, new BitSet(size + 1));
+        }
+        for (int attempt = 0; attempt < 64 * size; ++attempt) {
+            int u = 1 + random.nextInt(size), v = 1 + random.nextInt(size);
+            if (u != v && !adjacency.hasEdge(u, v) && adjacency.canAddEdge(u, v)) {
+                adjacency.addEdge(u, v);
+                baseline.get(u).set(v);
+                baseline.get(v).set(u);
+            }
+        }
+
+        us = new int[QUERIES];
+        vs = new int[QUERIES];
+        for (int i = 0; i < QUERIES; ++i) {
+            us[i] = 1 + random.nextInt(size);
+            vs[i] = 1 + random.nextInt(size);
+        }
+    }
+
+    @Benchmark
+    public int canAddEdge() {
+        int addable = 0;
+        for (int i = 0; i < QUERIES; ++i) {
+            if (us[i] != vs[i] && adjacency.canAddEdge(us[i], vs[i])) ++addable;
+        }
+        return addable;
+    }
+
+    @Benchmark
+    public int canAddEdgeBitSet() {
+        int addable = 0;
+        for (int i = 0; i < QUERIES; ++i) {
+            if (us[i] != vs[i] && canAddEdge(us[i], vs[i], baseline)) ++addable;
+        }
+        return addable;
+    }
+
+    private static boolean canAddEdge(int u, int v, Map<Integer, BitSet> adj) {
+        BitSet nu = adj.get(u), nv = adj.get(v);
+
+        BitSet intersection = (BitSet) nu.clone();
+        intersection.and(nv);
+        if (!intersection.isEmpty()) return false;
+
+        for (int x = nu.nextSetBit(0); x >= 0; x = nu.nextSetBit(x + 1)) {
+            BitSet xAdj = adj.get(x);
+            if (xAdj == null) continue;
+            BitSet temp = (BitSet) xAdj.clone();
+            temp.and(nv);
+            if (!temp.isEmpty()) return false;
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,69 @@
+package ru.ac.uniyar.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ac.uniyar.model.Task;
+import ru.ac.uniyar.model.Vertex;
+import ru.ac.uniyar.utils.Utils;
+import ru.ac.uniyar.utils.distance.DistanceMatrix;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DistanceBenchmark {
+    private static final int PAIRS = 1 << 16;
+
+    @Param({"512", "4096"})
+    public int size;
+
+    private Vertex[] vertices;
+    private DistanceMatrix matrix;
+    private int[] us;
+    private int[] vs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Task task = Instances.load(size);
+        vertices = new Vertex[size + 1];
+        for (int v = 1; v <= size; ++v) {
+            vertices[v] = task.getVertexes().get(v);
+        }
+        matrix = DistanceMatrix.of(task);
+
+        Random random = new Random(42);
+        us = new int[PAIRS];
+        vs = new int[PAIRS];
+        for (int i = 0; i < PAIRS; ++i) {
+            us[i] = 1 + random.nextInt(size);
+            vs[i] = 1 + random.nextInt(size);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        matrix.close();
+    }
+
+    @Benchmark
+    public long utilsGetDistance() {
+        long sum = 0;
+        for (int i = 0; i < PAIRS; ++i) {
+            sum += Utils.getDistance(vertices[us[i]], vertices[vs[i]]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long matrixGet() {
+        long sum = 0;
+        for (int i = 0; i < PAIRS; ++i) {
+            sum += matrix.get(us[i], vs[i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.ac.uniyar.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ac.uniyar.model.Task;
+import ru.ac.uniyar.model.results.C4C3FreeResult;
+import ru.ac.uniyar.model.results.LCMSTResult;
+import ru.ac.uniyar.model.results.VRPResult;
+import ru.ac.uniyar.service.C4C3FreeResolver;
+import ru.ac.uniyar.service.LCMSTResolver;
+import ru.ac.uniyar.service.VRPResolver;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class EndToEndBenchmark {
+    @Param({"64", "128", "512", "2048", "4096"})
+    public int size;
+
+    private Task task;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        task = Instances.load(size);
+    }
+
+    @Benchmark
+    public LCMSTResult lcmst() {
+        return LCMSTResolver.getAnswer(task);
+    }
+
+    @Benchmark
+    public VRPResult vrp() {
+        return VRPResolver.getAnswer(task);
+    }
+
+    @Benchmark
+    public C4C3FreeResult c4c3Free() throws ExecutionException, InterruptedException {
+        return C4C3FreeResolver.resolve(task);
+    }
+}
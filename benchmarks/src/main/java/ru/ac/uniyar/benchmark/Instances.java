@@ -0,0 +1,12 @@
+package ru.ac.uniyar.benchmark;
+
+import ru.ac.uniyar.model.Task;
+import ru.ac.uniyar.utils.Reader;
+
+public class Instances {
+    private static final String DIRECTORY = System.getProperty("benchmark.dir", "src/main/resources/benchmark");
+
+    public static Task load(int size) {
+        return Reader.readTask("%s/Taxicab_%d.txt".formatted(DIRECTORY, size));
+    }
+}
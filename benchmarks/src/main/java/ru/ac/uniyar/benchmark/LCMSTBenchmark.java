@@ -0,0 +1,49 @@
+package ru.ac.uniyar.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ac.uniyar.model.Task;
+import ru.ac.uniyar.model.results.LCMSTResult;
+import ru.ac.uniyar.service.Instance;
+import ru.ac.uniyar.service.LCMSTLocalSearch;
+import ru.ac.uniyar.service.LCMSTResolver;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class LCMSTBenchmark {
+    @Param({"512", "2048"})
+    public int size;
+
+    private Instance instance;
+    private LCMSTLocalSearch search;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Task task = Instances.load(size);
+        instance = Instance.of(task);
+        search = new LCMSTLocalSearch(size, LCMSTResolver.maxLeaves(size), instance.getDistances(),
+                instance.getSymmetricNeighbours());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        instance.close();
+    }
+
+    @Benchmark
+    public LCMSTResult buildTree() {
+        return LCMSTResolver.buildTree(instance, 1);
+    }
+
+    @Benchmark
+    public LCMSTResult checkVertex() {
+        LCMSTResult result = LCMSTResolver.buildTree(instance, 1);
+        search.improve(result, LCMSTLocalSearch.Policy.FIRST_IMPROVEMENT);
+        return result;
+    }
+}
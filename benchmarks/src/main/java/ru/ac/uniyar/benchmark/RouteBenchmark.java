@@ -0,0 +1,91 @@
+package ru.ac.uniyar.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.ac.uniyar.model.Task;
+import ru.ac.uniyar.service.RouteOptimizer;
+import ru.ac.uniyar.service.VRPRoute;
+import ru.ac.uniyar.utils.distance.DistanceMatrix;
+import ru.ac.uniyar.utils.spatial.NeighbourLists;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class RouteBenchmark {
+    @Param({"512", "4096"})
+    public int size;
+
+    @Param({"64", "512"})
+    public int routeLength;
+
+    private DistanceMatrix matrix;
+    private List<Integer> nodes;
+    private VRPRoute shuffled;
+    private RouteOptimizer optimizer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Task task = Instances.load(size);
+        matrix = DistanceMatrix.of(task);
+
+        List<Integer> customers = new ArrayList<>();
+        for (int v = 2; v <= Math.min(size, routeLength + 1); ++v) customers.add(v);
+        Collections.shuffle(customers, new Random(42));
+
+        nodes = new ArrayList<>();
+        nodes.add(1);
+        nodes.addAll(customers);
+        nodes.add(1);
+        shuffled = new VRPRoute(nodes, matrix);
+        optimizer = new RouteOptimizer(matrix, NeighbourLists.build(task));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        matrix.close();
+    }
+
+    @Benchmark
+    public int buildRoute() {
+        return new VRPRoute(nodes, matrix).length();
+    }
+
+    @Benchmark
+    public int bestReversal() {
+        int best = 0;
+        for (int i = 1; i < shuffled.size() - 2; ++i) {
+            for (int j = i + 1; j < shuffled.size() - 1; ++j) {
+                best = Math.min(best, shuffled.reverseDelta(i, j));
+            }
+        }
+        return best;
+    }
+
+    @Benchmark
+    public int bestRelocation() {
+        int best = 0;
+        for (int i = 1; i < shuffled.size() - 1; ++i) {
+            int removeDelta = shuffled.removeDelta(i);
+            for (int j = 1; j < shuffled.size(); ++j) {
+                if (j == i || j == i + 1) continue;
+                best = Math.min(best, removeDelta + shuffled.insertDelta(j, shuffled.get(i)));
+            }
+        }
+        return best;
+    }
+
+    @Benchmark
+    public int optimize() {
+        VRPRoute route = shuffled.copy();
+        optimizer.optimize(route);
+        return route.length();
+    }
+}
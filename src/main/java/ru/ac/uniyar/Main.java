@@ -9,6 +9,7 @@ import ru.ac.uniyar.model.Task;
 import ru.ac.uniyar.model.results.VRPResult;
 import ru.ac.uniyar.service.C4C3FreeResolver;
 import ru.ac.uniyar.service.VRPResolver;
+import ru.ac.uniyar.service.anytime.Budget;
 import ru.ac.uniyar.utils.Validator;
 import ru.ac.uniyar.service.LCMSTResolver;
 import ru.ac.uniyar.utils.Writer;
@@ -20,20 +21,23 @@ public class Main {
     private static final TaskSize size = TaskSize.TASK_512;
     private static final TaskType type = TaskType.C4C3FREE;
     private static final Try tryNum = Try.FIRST;
+    private static final String warmStartPath = null;
 
     public static void main(String[] args) throws ExecutionException, InterruptedException {
         Task task = Reader.readTask(String.format("src/main/resources/benchmark/Taxicab_%s.txt", size.getCode()));
 
         switch (type) {
             case LCMST -> {
-                LCMSTResult result = LCMSTResolver.getAnswer(task);
+                LCMSTResult warmStart = warmStartPath == null ? null : Reader.readLCMSTResult(warmStartPath);
+                LCMSTResult result = LCMSTResolver.getAnswer(task, warmStart, Budget.unlimited(), r -> {});
                 System.out.println("weight: " + result.getWeight() + ", leaves: " + result.getLeaves());
                 Validator.validateLCMSTResult(task, result);
                 Writer.writeLCMSTResult(result, "src/main/resources/result/lcmst/try_%s/Karpunin_%s_%s.txt"
                         .formatted(tryNum.getNum(), size.getCode(), tryNum.getNum()));
             }
             case VRP -> {
-                VRPResult result = VRPResolver.getAnswer(task);
+                VRPResult warmStart = warmStartPath == null ? null : Reader.readVRPResult(warmStartPath);
+                VRPResult result = VRPResolver.getAnswer(task, warmStart, Budget.unlimited(), r -> {}, false);
                 System.out.println("maxCycleWeight: " + result.getMaxCycleWeight() + ", totalWeight: " +
                         result.getTotalWeight() + ", depot: " + result.getDepot());
                 Validator.validateVRPResult(task, result);
@@ -41,7 +45,8 @@ public class Main {
                         .formatted(tryNum.getNum(), size.getCode(), tryNum.getNum()), task);
             }
             case C4C3FREE -> {
-                C4C3FreeResult result = C4C3FreeResolver.resolve(task);
+                C4C3FreeResult warmStart = warmStartPath == null ? null : Reader.readC4C3FreeResult(warmStartPath);
+                C4C3FreeResult result = C4C3FreeResolver.resolve(task, warmStart, Budget.unlimited(), r -> {});
                 System.out.println("weight: " + result.getWeight() + ", edges: " + result.getEdges().size());
                 Validator.validateC4C3FreeResult(task, result);
                 Writer.writeBiggestSubGraphResult(result, "src/main/resources/result/biggestsubgraph/try_%s/Karpunin_%s_%s_%s.txt"
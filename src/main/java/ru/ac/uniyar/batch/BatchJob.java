@@ -0,0 +1,23 @@
+package ru.ac.uniyar.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import ru.ac.uniyar.model.enums.TaskSize;
+import ru.ac.uniyar.model.enums.TaskType;
+import ru.ac.uniyar.model.enums.Try;
+
+import java.time.Duration;
+
+@Getter
+@AllArgsConstructor
+public class BatchJob {
+    private final TaskType type;
+    private final TaskSize size;
+    private final Try tryNum;
+    private final Duration timeLimit;
+
+    @Override
+    public String toString() {
+        return "%s %s try %s".formatted(type, size.getCode(), tryNum.getNum());
+    }
+}
@@ -0,0 +1,169 @@
+package ru.ac.uniyar.batch;
+
+import ru.ac.uniyar.model.Task;
+import ru.ac.uniyar.model.enums.TaskSize;
+import ru.ac.uniyar.model.results.C4C3FreeResult;
+import ru.ac.uniyar.model.results.LCMSTResult;
+import ru.ac.uniyar.model.results.VRPResult;
+import ru.ac.uniyar.service.C4C3FreeResolver;
+import ru.ac.uniyar.service.Instance;
+import ru.ac.uniyar.service.LCMSTResolver;
+import ru.ac.uniyar.service.VRPResolver;
+import ru.ac.uniyar.service.anytime.Budget;
+import ru.ac.uniyar.utils.Reader;
+import ru.ac.uniyar.utils.Validator;
+import ru.ac.uniyar.utils.sink.ResultEncoder;
+import ru.ac.uniyar.utils.sink.ResultSink;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class BatchRunner {
+    private static final int DEFAULT_CONCURRENT_JOBS = 2;
+    private static final String TASK_PATH = "src/main/resources/benchmark/Taxicab_%s.txt";
+    private static final String LCMST_PATH = "src/main/resources/result/lcmst/try_%s/Karpunin_%s_%s.txt";
+    private static final String VRP_PATH = "src/main/resources/result/vrp/try_%s/Karpunin_%s_%s.txt";
+    private static final String C4C3FREE_PATH = "src/main/resources/result/biggestsubgraph/try_%s/Karpunin_%s_%s.txt";
+    private static final boolean RESUME = System.getProperty("batch.resume") != null;
+
+    private final int concurrentJobs;
+    private final Map<TaskSize, Instance> instances = new EnumMap<>(TaskSize.class);
+    private final Map<TaskSize, Integer> pending = new EnumMap<>(TaskSize.class);
+
+    public BatchRunner(int concurrentJobs) {
+        this.concurrentJobs = concurrentJobs;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("usage: BatchRunner <manifest> [concurrent jobs]");
+            System.exit(2);
+        }
+        List<BatchJob> jobs = Manifest.read(Path.of(args[0]));
+        int concurrentJobs = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CONCURRENT_JOBS;
+        new BatchRunner(concurrentJobs).run(jobs);
+    }
+
+    public void run(List<BatchJob> jobs) throws InterruptedException {
+        for (BatchJob job : jobs) {
+            pending.merge(job.getSize(), 1, Integer::sum);
+        }
+
+        int workersPerJob = Math.max(1, Runtime.getRuntime().availableProcessors() / concurrentJobs);
+        ExecutorService drivers = Executors.newFixedThreadPool(concurrentJobs);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (BatchJob job : jobs) {
+                futures.add(drivers.submit(() -> {
+                    runJob(job, workersPerJob);
+                    return null;
+                }));
+            }
+            for (int i = 0; i < jobs.size(); ++i) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    System.err.println(jobs.get(i) + " failed: " + e.getCause());
+                }
+            }
+        } finally {
+            drivers.shutdown();
+            synchronized (this) {
+                instances.values().forEach(Instance::close);
+                instances.clear();
+            }
+        }
+    }
+
+    /**
+     * Each job gets its own pool so that its workers never wait behind another job's, and its time budget starts
+     * only once the job's inputs are loaded.
+     */
+    private void runJob(BatchJob job, int workers) throws Exception {
+        Instant start = Instant.now();
+        Instance instance = acquire(job.getSize());
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        try {
+            Task task = instance.getTask();
+            int size = job.getSize().getCode(), tryNum = job.getTryNum().getNum();
+            String summary = "no result within the budget";
+
+            switch (job.getType()) {
+                case LCMST -> {
+                    String path = LCMST_PATH.formatted(tryNum, size, tryNum);
+                    LCMSTResult stored = Files.exists(Path.of(path)) ? Reader.readLCMSTResult(path) : null;
+                    LCMSTResult warmStart = RESUME ? stored : null;
+                    LCMSTResult result;
+                    try (ResultSink<LCMSTResult> sink = new ResultSink<>(Path.of(path), stored,
+                            Comparator.comparingInt(LCMSTResult::getWeight), r -> Validator.isValidLCMSTResult(task, r),
+                            ResultEncoder.lcmst())) {
+                        result = LCMSTResolver.getAnswer(instance, warmStart, budget(job), sink::offer, pool);
+                    }
+                    if (result == null) break;
+                    summary = "weight: " + result.getWeight() + ", leaves: " + result.getLeaves()
+                            + (warmStart == null ? "" : ", resumed from weight " + warmStart.getWeight());
+                }
+                case VRP -> {
+                    String path = VRP_PATH.formatted(tryNum, size, tryNum);
+                    VRPResult stored = Files.exists(Path.of(path)) ? Reader.readVRPResult(path) : null;
+                    VRPResult warmStart = RESUME ? stored : null;
+                    VRPResult result;
+                    try (ResultSink<VRPResult> sink = new ResultSink<>(Path.of(path), stored,
+                            Comparator.comparingInt(VRPResult::getMaxCycleWeight).thenComparingInt(VRPResult::getTotalWeight),
+                            r -> Validator.isValidVRPResult(task, r), ResultEncoder.vrp(task.getSize()))) {
+                        result = VRPResolver.getAnswer(instance, warmStart, budget(job), sink::offer, false, pool);
+                    }
+                    if (result == null) break;
+                    summary = "maxCycleWeight: " + result.getMaxCycleWeight() + ", totalWeight: " + result.getTotalWeight()
+                            + (warmStart == null ? "" : ", resumed from maxCycleWeight " + warmStart.getMaxCycleWeight());
+                }
+                case C4C3FREE -> {
+                    String path = C4C3FREE_PATH.formatted(tryNum, size, tryNum);
+                    C4C3FreeResult stored = Files.exists(Path.of(path)) ? Reader.readC4C3FreeResult(path) : null;
+                    C4C3FreeResult warmStart = RESUME ? stored : null;
+                    C4C3FreeResult result;
+                    try (ResultSink<C4C3FreeResult> sink = new ResultSink<>(Path.of(path), stored,
+                            Comparator.comparingInt(C4C3FreeResult::getWeight).reversed(),
+                            r -> Validator.isValidC4C3FreeResult(task, r), ResultEncoder.c4c3Free(task.getSize()))) {
+                        result = C4C3FreeResolver.resolve(instance, warmStart, budget(job), sink::offer, pool);
+                    }
+                    if (result == null) break;
+                    summary = "weight: " + result.getWeight() + ", edges: " + result.getEdges().size()
+                            + (warmStart == null ? "" : ", resumed from weight " + warmStart.getWeight());
+                }
+            }
+            System.out.println(job + ": " + summary + " (" + Duration.between(start, Instant.now()).toMillis() + " ms)");
+        } finally {
+            pool.shutdown();
+            release(job.getSize());
+        }
+    }
+
+    private static Budget budget(BatchJob job) {
+        return job.getTimeLimit() == null ? Budget.unlimited() : Budget.ofTime(job.getTimeLimit());
+    }
+
+    private synchronized Instance acquire(TaskSize size) {
+        return instances.computeIfAbsent(size, s -> Instance.of(Reader.readTask(TASK_PATH.formatted(s.getCode()))));
+    }
+
+    private synchronized void release(TaskSize size) {
+        if (pending.merge(size, -1, Integer::sum) == 0) {
+            Instance instance = instances.remove(size);
+            if (instance != null) instance.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ru.ac.uniyar.batch;
+
+import ru.ac.uniyar.model.enums.TaskSize;
+import ru.ac.uniyar.model.enums.TaskType;
+import ru.ac.uniyar.model.enums.Try;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One job per line: {@code <type> <size> <try> [<seconds>]}, e.g. {@code VRP 512 1 600}. Any of the first three
+ * fields may be {@code *} to expand over all values; blank lines and lines starting with {@code #} are ignored.
+ */
+public class Manifest {
+    public static List<BatchJob> read(Path path) throws IOException {
+        List<BatchJob> jobs = new ArrayList<>();
+        List<String> lines = Files.readAllLines(path);
+        for (int i = 0; i < lines.size(); ++i) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+
+            String[] fields = line.split("\\s+");
+            if (fields.length < 3 || fields.length > 4) {
+                throw new IllegalArgumentException("%s:%d: expected <type> <size> <try> [<seconds>]".formatted(path, i + 1));
+            }
+            try {
+                Duration timeLimit = fields.length == 4 ? Duration.ofSeconds(Long.parseLong(fields[3])) : null;
+                for (TaskType type : expand(fields[0], TaskType.values(), value -> TaskType.valueOf(value.toUpperCase()))) {
+                    for (TaskSize size : expand(fields[1], TaskSize.values(), Manifest::sizeOf)) {
+                        for (Try tryNum : expand(fields[2], Try.values(), Manifest::tryOf)) {
+                            jobs.add(new BatchJob(type, size, tryNum, timeLimit));
+                        }
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("%s:%d: %s".formatted(path, i + 1, e.getMessage()), e);
+            }
+        }
+        return jobs;
+    }
+
+    private static <T> List<T> expand(String field, T[] all, Function<String, T> parse) {
+        return field.equals("*") ? Arrays.asList(all) : List.of(parse.apply(field));
+    }
+
+    private static TaskSize sizeOf(String value) {
+        int code = Integer.parseInt(value);
+        return Arrays.stream(TaskSize.values()).filter(size -> size.getCode() == code).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("unknown size " + value));
+    }
+
+    private static Try tryOf(String value) {
+        int num = Integer.parseInt(value);
+        return Arrays.stream(Try.values()).filter(tryNum -> tryNum.getNum() == num).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("unknown try " + value));
+    }
+}
@@ -1,9 +1,12 @@
 package ru.ac.uniyar.model;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.nio.IntBuffer;
+import java.util.HashMap;
 import java.util.Map;
 
 @Getter
@@ -11,5 +14,64 @@ import java.util.Map;
 @NoArgsConstructor
 public class Task {
     private int size;
+    @Getter(AccessLevel.NONE)
     private Map<Integer, Vertex> vertexes;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private IntBuffer xs;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private IntBuffer ys;
+
+    public Task(int[] xs, int[] ys) {
+        this(IntBuffer.wrap(xs), IntBuffer.wrap(ys));
+    }
+
+    /**
+     * Coordinates indexed by vertex, slot 0 unused. The buffers may be views of a mapped cache file.
+     */
+    public Task(IntBuffer xs, IntBuffer ys) {
+        this.size = xs.limit() - 1;
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    public int getX(int v) {
+        return xs.get(v);
+    }
+
+    public int getY(int v) {
+        return ys.get(v);
+    }
+
+    public IntBuffer getXs() {
+        return xs.duplicate();
+    }
+
+    public IntBuffer getYs() {
+        return ys.duplicate();
+    }
+
+    public synchronized Map<Integer, Vertex> getVertexes() {
+        if (vertexes == null && xs != null) {
+            vertexes = new HashMap<>(size * 2);
+            for (int v = 1; v <= size; ++v) {
+                vertexes.put(v, new Vertex(xs.get(v), ys.get(v), v));
+            }
+        }
+        return vertexes;
+    }
+
+    public synchronized void setVertexes(Map<Integer, Vertex> vertexes) {
+        this.vertexes = vertexes;
+        int n = Math.max(size, vertexes.keySet().stream().mapToInt(Integer::intValue).max().orElse(0));
+        int[] xs = new int[n + 1];
+        int[] ys = new int[n + 1];
+        vertexes.forEach((v, vertex) -> {
+            xs[v] = vertex.getX();
+            ys[v] = vertex.getY();
+        });
+        this.xs = IntBuffer.wrap(xs);
+        this.ys = IntBuffer.wrap(ys);
+    }
 }
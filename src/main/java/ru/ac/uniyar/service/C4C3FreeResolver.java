@@ -2,114 +2,316 @@ package ru.ac.uniyar.service;
 
 import ru.ac.uniyar.model.Edge;
 import ru.ac.uniyar.model.Task;
-import ru.ac.uniyar.model.Vertex;
 import ru.ac.uniyar.model.results.C4C3FreeResult;
+import ru.ac.uniyar.service.anytime.BestSoFar;
+import ru.ac.uniyar.service.anytime.Budget;
+import ru.ac.uniyar.utils.TabuMemory;
 import ru.ac.uniyar.utils.Utils;
 import ru.ac.uniyar.utils.Validator;
-import ru.ac.uniyar.utils.Writer;
+import ru.ac.uniyar.utils.distance.DistanceMatrix;
+import ru.ac.uniyar.utils.graph.BitAdjacency;
+import ru.ac.uniyar.utils.graph.BlockedEdges;
+import ru.ac.uniyar.utils.graph.EdgeSource;
+import ru.ac.uniyar.utils.graph.Subgraph;
+import ru.ac.uniyar.utils.telemetry.Counter;
+import ru.ac.uniyar.utils.telemetry.Gauge;
+import ru.ac.uniyar.utils.telemetry.Histogram;
+import ru.ac.uniyar.utils.telemetry.Telemetry;
+import ru.ac.uniyar.utils.validation.C4C3FreeValidator;
+import ru.ac.uniyar.utils.validation.C4C3FreeVerdict;
 
-import java.time.Duration;
-import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class C4C3FreeResolver {
+    private static final int HEAVY_PAIRS_MIN_VERTICES = 512;
+    private static final Integer HEAVY_PAIRS_PER_VERTEX = Integer.getInteger("c4c3.heavyPairsPerVertex");
+    private static final boolean COOPERATIVE = true;
+    private static final int ELITE_SIZE = 10;
+
+    private static final Counter STARTS = Telemetry.counter("c4c3.starts");
+    private static final Counter ITERATIONS = Telemetry.counter("c4c3.tabu.iterations");
+    private static final Counter EVALUATED = Telemetry.counter("c4c3.tabu.moves.evaluated");
+    private static final Counter RELINKS = Telemetry.counter("c4c3.relinks");
+    private static final Counter IMPROVEMENTS = Telemetry.counter("c4c3.incumbent.improvements");
+    private static final Gauge INCUMBENT = Telemetry.gauge("c4c3.incumbent.weight");
+    private static final Histogram CONSTRUCTION = Telemetry.histogram("c4c3.phase.construction.ns");
+    private static final Histogram TABU = Telemetry.histogram("c4c3.phase.tabu.ns");
+    private static final Histogram FILL = Telemetry.histogram("c4c3.phase.fill.ns");
 
     public static C4C3FreeResult resolve(Task task) throws InterruptedException, ExecutionException {
+        return resolve(task, Budget.unlimited(), result -> {});
+    }
+
+    public static C4C3FreeResult resolve(Task task, Budget budget, Consumer<C4C3FreeResult> onImprovement)
+            throws InterruptedException, ExecutionException {
+        return resolve(task, null, budget, onImprovement);
+    }
+
+    public static C4C3FreeResult resolve(Task task, C4C3FreeResult warmStart, Budget budget,
+                                         Consumer<C4C3FreeResult> onImprovement) throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try (Instance instance = Instance.of(task)) {
+            return resolve(instance, warmStart, budget, onImprovement, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public static C4C3FreeResult resolve(Instance instance, Budget budget, Consumer<C4C3FreeResult> onImprovement,
+                                         ExecutorService executor) throws InterruptedException, ExecutionException {
+        return resolve(instance, null, budget, onImprovement, executor);
+    }
+
+    public static C4C3FreeResult resolve(Instance instance, C4C3FreeResult warmStart, Budget budget,
+                                         Consumer<C4C3FreeResult> onImprovement, ExecutorService executor)
+            throws InterruptedException, ExecutionException {
         final int NUM_STARTS = 200;
 
-        Map<Integer, Vertex> vertexes = task.getVertexes();
-        Map<Long, Integer> distanceCache = new HashMap<>();
-        List<Edge> allEdges = generateAllEdges(vertexes, distanceCache);
+        Task task = instance.getTask();
+        int heavyPairs = heavyPairsPerVertex(task.getSize());
+        EdgeSource edges = heavyPairs > 0
+                ? EdgeSource.heaviest(task, (int) Math.min((long) heavyPairs * task.getSize(), Integer.MAX_VALUE))
+                : EdgeSource.allPairs(instance.getDistances());
+        List<Edge> initial = warmStart == null ? null : reweigh(task, warmStart, instance.getDistances()).getEdges();
+
+        DistanceMatrix dist = instance.getDistances();
+        BestSoFar<C4C3FreeResult> best = new BestSoFar<>(
+                Comparator.comparingInt(C4C3FreeResult::getWeight).reversed(), result -> {
+            INCUMBENT.set(result.getWeight());
+            IMPROVEMENTS.increment();
+            onImprovement.accept(result);
+        });
+        ElitePool elite = new ElitePool(ELITE_SIZE);
+        if (initial != null) {
+            C4C3FreeResult resumed = new C4C3FreeResult(getTotalWeight(initial), new ArrayList<>(initial));
+            best.offer(resumed);
+            elite.offer(resumed);
+        }
 
-        allEdges.sort(Comparator.comparingInt(Edge::getWeight).reversed());
-        List<Edge> topEdges = new ArrayList<>(allEdges);
+        AtomicInteger nextStart = new AtomicInteger();
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < Utils.parallelism(executor); ++t) {
+            workers.add(() -> {
+                try {
+                    Subgraph solution = new Subgraph(new BlockedEdges(edges.shuffled(0)), task.getSize());
+                    for (int startIndex = nextStart.getAndIncrement(); startIndex < NUM_STARTS && !budget.isExhausted();
+                         startIndex = nextStart.getAndIncrement()) {
+                        int seed = startIndex * 997;
+                        C4C3FreeResult result = runGRASPAttempt(task, solution, edges, initial, seed, budget);
+                        best.offer(result);
+                        if (!COOPERATIVE || result == null) continue;
+
+                        C4C3FreeResult guide = elite.pick(new Random(seed));
+                        if (!elite.offer(result) || guide == null) continue;
+                        List<Edge> relinked = relink(solution.getState(), edges, dist, seed, result, guide, budget);
+                        if (relinked == null) continue;
+                        RELINKS.increment();
+                        C4C3FreeResult improved = runGRASPAttempt(task, solution, edges, relinked, seed + 1, budget);
+                        best.offer(improved);
+                        elite.offer(improved);
+                    }
+                } finally {
+                    budget.flush();
+                }
+                return null;
+            });
+        }
 
-        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        List<Future<C4C3FreeResult>> futures = new ArrayList<>();
+        for (Future<Void> future : executor.invokeAll(workers)) {
+            future.get();
+        }
+
+        return best.get();
+    }
+
+    /**
+     * From {@link #HEAVY_PAIRS_MIN_VERTICES} vertices up the search only considers the heaviest n/4 pairs per vertex,
+     * which finds heavier subgraphs within the same time; -Dc4c3.heavyPairsPerVertex overrides it, 0 meaning all pairs.
+     */
+    private static int heavyPairsPerVertex(int n) {
+        if (HEAVY_PAIRS_PER_VERTEX != null) return HEAVY_PAIRS_PER_VERTEX;
+        return n >= HEAVY_PAIRS_MIN_VERTICES ? n / 4 : 0;
+    }
 
-        for (int startIndex = 0; startIndex < NUM_STARTS; startIndex++) {
-            final int seed = startIndex * 997;
-            final List<Edge> edgeCopy = new ArrayList<>(topEdges);
-            futures.add(executor.submit(() -> runGRASPAttempt(task, edgeCopy, seed)));
+    private static List<Edge> relink(BlockedEdges state, EdgeSource edges, DistanceMatrix dist, int seed,
+                                     C4C3FreeResult from, C4C3FreeResult guide, Budget budget) {
+        state.reset(edges.shuffled(seed));
+        BitAdjacency adjacency = state.getAdjacency();
+        long[] target = ElitePool.keys(guide.getEdges());
+        long weight = 0;
+        for (Edge edge : from.getEdges()) {
+            state.add(edge);
+            weight += edge.getWeight();
         }
 
-        C4C3FreeResult bestOverall = null;
-        int bestOverallWeight = -1;
+        List<Edge> moves = new ArrayList<>();
+        for (Edge edge : guide.getEdges()) {
+            if (!adjacency.hasEdge(edge.getVertex1(), edge.getVertex2())) moves.add(edge);
+        }
+        moves.sort(Comparator.comparingInt(Edge::getWeight).reversed());
+
+        List<Long> changes = new ArrayList<>();
+        long bestWeight = Long.MIN_VALUE;
+        int bestChanges = -1;
+        for (int step = 0; step < moves.size() - 1 && budget.tick(); ++step) {
+            int u = moves.get(step).getVertex1(), v = moves.get(step).getVertex2();
+            weight -= evictPaths(state, dist, target, changes, u, v);
+            if (!state.isAddable(u, v)) continue;
+            state.add(u, v);
+            changes.add(ElitePool.key(u, v));
+            weight += moves.get(step).getWeight();
+
+            if (weight > bestWeight) {
+                bestWeight = weight;
+                bestChanges = changes.size();
+            }
+        }
+        return bestChanges < 0 ? null : replay(from, changes.subList(0, bestChanges), dist);
+    }
 
-        for (Future<C4C3FreeResult> future : futures) {
-            C4C3FreeResult result = future.get();
-            if (result.getWeight() > bestOverallWeight) {
-                bestOverallWeight = result.getWeight();
-                bestOverall = result;
+    private static List<Edge> replay(C4C3FreeResult from, List<Long> changes, DistanceMatrix dist) {
+        Set<Long> keys = new LinkedHashSet<>();
+        for (Edge edge : from.getEdges()) {
+            keys.add(ElitePool.key(edge.getVertex1(), edge.getVertex2()));
+        }
+        for (long change : changes) {
+            if (change < 0) {
+                keys.remove(~change);
+            } else {
+                keys.add(change);
             }
         }
-        executor.shutdown();
+        List<Edge> edges = new ArrayList<>(keys.size());
+        for (long key : keys) {
+            int u = (int) (key >>> 32), v = (int) key;
+            edges.add(new Edge(u, v, dist.get(u, v)));
+        }
+        return edges;
+    }
 
-        return bestOverall;
+    private static long evictPaths(BlockedEdges state, DistanceMatrix dist, long[] target, List<Long> changes,
+                                   int u, int v) {
+        BitAdjacency adjacency = state.getAdjacency();
+        long removed = 0;
+        int[] vNeighbours = neighbours(adjacency, v);
+        for (int x : neighbours(adjacency, u)) {
+            if (x == v) continue;
+            if (adjacency.hasEdge(x, v)) {
+                removed += evictLightest(state, dist, target, changes, u, x, v);
+                continue;
+            }
+            for (int y : vNeighbours) {
+                if (!adjacency.hasEdge(u, x)) break;
+                if (y != u && adjacency.hasEdge(y, v) && adjacency.hasEdge(x, y)) {
+                    removed += evictLightest(state, dist, target, changes, u, x, y, v);
+                }
+            }
+        }
+        return removed;
     }
 
-    private static C4C3FreeResult runGRASPAttempt(Task task, List<Edge> allEdges, int seed) {
-        Instant start = Instant.now();
+    private static int evictLightest(BlockedEdges state, DistanceMatrix dist, long[] target, List<Long> changes,
+                                     int... path) {
+        int lightest = -1, lightestWeight = Integer.MAX_VALUE;
+        for (int i = 0; i + 1 < path.length; ++i) {
+            int w = dist.get(path[i], path[i + 1]);
+            if (w < lightestWeight && Arrays.binarySearch(target, ElitePool.key(path[i], path[i + 1])) < 0) {
+                lightestWeight = w;
+                lightest = i;
+            }
+        }
+        if (lightest < 0) return 0;
+        state.remove(path[lightest], path[lightest + 1]);
+        changes.add(~ElitePool.key(path[lightest], path[lightest + 1]));
+        return lightestWeight;
+    }
+
+    private static int[] neighbours(BitAdjacency adjacency, int v) {
+        int[] neighbours = new int[adjacency.degree(v)];
+        for (int i = 0; i < neighbours.length; ++i) {
+            neighbours[i] = adjacency.neighbour(v, i);
+        }
+        return neighbours;
+    }
+
+    private static C4C3FreeResult reweigh(Task task, C4C3FreeResult warmStart, DistanceMatrix dist) {
+        List<Edge> edges = new ArrayList<>(warmStart.getEdges().size());
+        for (Edge edge : warmStart.getEdges()) {
+            int u = edge.getVertex1(), v = edge.getVertex2();
+            boolean inRange = u >= 1 && u <= task.getSize() && v >= 1 && v <= task.getSize();
+            edges.add(new Edge(u, v, inRange ? dist.get(u, v) : 0));
+        }
+        C4C3FreeResult result = new C4C3FreeResult(getTotalWeight(edges), edges);
+        C4C3FreeVerdict verdict = Validator.checkC4C3FreeResult(task, result);
+        if (!verdict.isValid()) {
+            throw new IllegalArgumentException("Warm start is not a C4/C3-free subgraph of this task: " + verdict);
+        }
+        return result;
+    }
+
+    private static C4C3FreeResult runGRASPAttempt(Task task, Subgraph solution, EdgeSource edges, List<Edge> initial,
+                                                  int seed, Budget budget) {
+        if (budget.isExhausted()) return null;
+        STARTS.increment();
+        long start = Telemetry.now();
         final int RCL_POOL_SIZE = 20;
         final int RCL_SIZE = 2;
         final int MAX_ITERATIONS = 500000;
         final int TABU_TENURE = 1000;
         final int MAX_NO_IMPROVEMENT = 50;
 
-        Collections.shuffle(allEdges, new Random(seed));
-
-        List<Edge> currentSolution = new ArrayList<>();
-        Map<Integer, BitSet> adjacency = initializeAdjacency(task.getVertexes());
+        solution.reset(edges.shuffled(seed));
+        BlockedEdges state = solution.getState();
 
-        List<Edge> candidateRCL = new ArrayList<>();
-        for (Edge edge : allEdges) {
-            if (canAddEdge(edge, adjacency)) {
-                candidateRCL.add(edge);
-                if (candidateRCL.size() >= RCL_POOL_SIZE) break;
+        if (initial != null) {
+            for (Edge edge : initial) {
+                solution.add(edge);
+            }
+        } else {
+            List<Edge> candidateRCL = new ArrayList<>();
+            for (int rank = state.nextAddable(0); rank >= 0 && candidateRCL.size() < RCL_POOL_SIZE; rank = state.nextAddable(rank + 1)) {
+                candidateRCL.add(state.edgeAt(rank));
+            }
+            Collections.shuffle(candidateRCL, new Random(seed));
+            for (int i = 0; i < RCL_SIZE && i < candidateRCL.size(); i++) {
+                solution.add(candidateRCL.get(i));
             }
-        }
-        Collections.shuffle(candidateRCL, new Random(seed));
-        for (int i = 0; i < RCL_SIZE && i < candidateRCL.size(); i++) {
-            Edge chosen = candidateRCL.get(i);
-            addEdge(chosen, adjacency);
-            currentSolution.add(chosen);
         }
 
-        List<Edge> bestLocalSolution = new ArrayList<>(currentSolution);
-        int bestLocalWeight = getTotalWeight(currentSolution);
-        Map<String, Integer> tabuList = new HashMap<>();
+        solution.commit();
+        long bestLocalWeight = solution.getWeight();
+        TabuMemory tabuList = new TabuMemory();
         int noImprovementCounter = 0;
+        CONSTRUCTION.recordSince(start);
 
-        for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
-            List<Edge> candidateSolution = new ArrayList<>(currentSolution);
-            Map<Integer, BitSet> candidateAdj = buildAdjacency(candidateSolution, task.getVertexes());
-
-            candidateSolution.sort(Comparator.comparingInt(Edge::getWeight));
-            int toRemove = Math.min(3, candidateSolution.size());
+        start = Telemetry.now();
+        int iter = 0;
+        long evaluated = 0;
+        for (; iter < MAX_ITERATIONS && budget.tick(); iter++) {
+            int toRemove = Math.min(3, solution.size());
             for (int i = 0; i < toRemove; i++) {
-                Edge e = candidateSolution.remove(0);
-                removeEdge(e, candidateAdj);
+                solution.removeLightest();
             }
 
             int additions = 0;
-            for (Edge edge : allEdges) {
-                if (candidateSolution.contains(edge)) continue;
-                String move = edge.getVertex1() + "-" + edge.getVertex2();
-                if (tabuList.getOrDefault(move, 0) > iter) continue;
-                if (canAddEdge(edge, candidateAdj)) {
-                    addEdge(edge, candidateAdj);
-                    candidateSolution.add(edge);
-                    tabuList.put(move, iter + TABU_TENURE);
-                    additions++;
-                    if (additions >= 5) break;
-                }
+            for (int rank = state.nextAddable(0); rank >= 0 && additions < 5; rank = state.nextAddable(rank + 1)) {
+                Edge edge = state.edgeAt(rank);
+                ++evaluated;
+                long move = (long) edge.getVertex1() << 32 | edge.getVertex2();
+                if (tabuList.expiresAt(move) > iter) continue;
+                solution.add(edge);
+                tabuList.put(move, iter + TABU_TENURE);
+                additions++;
             }
 
-            int candidateWeight = getTotalWeight(candidateSolution);
-            if (candidateWeight > bestLocalWeight) {
-                bestLocalWeight = candidateWeight;
-                bestLocalSolution = new ArrayList<>(candidateSolution);
+            tabuList.expire(iter);
+
+            if (solution.getWeight() > bestLocalWeight) {
+                bestLocalWeight = solution.getWeight();
+                solution.commit();
                 noImprovementCounter = 0;
             } else {
                 noImprovementCounter++;
@@ -117,92 +319,26 @@ public class C4C3FreeResolver {
                     break;
                 }
             }
-
-            currentSolution = candidateSolution;
-            System.out.println("iter: " + iter + "/" + MAX_ITERATIONS + " : " + bestLocalWeight);
         }
-
-        Map<Integer, BitSet> finalAdj = buildAdjacency(bestLocalSolution, task.getVertexes());
-        for (Edge edge : allEdges) {
-            if (bestLocalSolution.contains(edge)) continue;
-            if (canAddEdge(edge, finalAdj)) {
-                addEdge(edge, finalAdj);
-                bestLocalSolution.add(edge);
-                bestLocalWeight += edge.getWeight();
-            }
+        ITERATIONS.add(iter);
+        EVALUATED.add(evaluated);
+        TABU.recordSince(start);
+
+        start = Telemetry.now();
+        solution.rollback();
+        for (int rank = state.nextAddable(0); rank >= 0 && !budget.isExhausted(); rank = state.nextAddable(rank + 1)) {
+            solution.add(state.edgeAt(rank));
         }
 
         C4C3FreeResult result = new C4C3FreeResult();
-        result.setEdges(bestLocalSolution);
-        result.setWeight(bestLocalWeight);
-        System.out.println(bestLocalWeight + " " + Duration.between(start, Instant.now()).toMillis());
-        Writer.writeBiggestSubGraphResult(result, "src/main/resources/result/biggestsubgraph/2048/4096_%s.txt".formatted(result.getWeight()), task);
-        Validator.validateC4C3FreeResult(task, result);
+        result.setEdges(solution.getEdges());
+        result.setWeight((int) solution.getWeight());
+        FILL.recordSince(start);
+        assert C4C3FreeValidator.validate(task, result, false).isValid() : "GRASP start produced an invalid result";
         return result;
     }
 
-    private static List<Edge> generateAllEdges(Map<Integer, Vertex> vertexes, Map<Long, Integer> cache) {
-        List<Integer> keys = new ArrayList<>(vertexes.keySet());
-        List<Edge> edges = new ArrayList<>();
-        for (int i = 0; i < keys.size(); i++) {
-            for (int j = i + 1; j < keys.size(); j++) {
-                Vertex v1 = vertexes.get(keys.get(i));
-                Vertex v2 = vertexes.get(keys.get(j));
-                int id1 = v1.getNumber(), id2 = v2.getNumber();
-                long key = Math.min(id1, id2) * 1_000_000L + Math.max(id1, id2);
-                int weight = cache.computeIfAbsent(key, k -> Utils.getDistance(v1, v2));
-                edges.add(new Edge(id1, id2, weight));
-            }
-        }
-        return edges;
-    }
-
-    private static Map<Integer, BitSet> initializeAdjacency(Map<Integer, Vertex> vertexes) {
-        Map<Integer, BitSet> adjacency = new HashMap<>();
-        for (Vertex v : vertexes.values()) {
-            adjacency.put(v.getNumber(), new BitSet());
-        }
-        return adjacency;
-    }
-
-    private static boolean canAddEdge(Edge edge, Map<Integer, BitSet> adj) {
-        int u = edge.getVertex1(), v = edge.getVertex2();
-        BitSet nu = adj.get(u), nv = adj.get(v);
-
-        BitSet intersection = (BitSet) nu.clone();
-        intersection.and(nv);
-        if (!intersection.isEmpty()) return false;
-
-        for (int x = nu.nextSetBit(0); x >= 0; x = nu.nextSetBit(x + 1)) {
-            BitSet xAdj = adj.get(x);
-            if (xAdj == null) continue;
-            BitSet temp = (BitSet) xAdj.clone();
-            temp.and(nv);
-            if (!temp.isEmpty()) return false;
-        }
-
-        return true;
-    }
-
-    private static void addEdge(Edge e, Map<Integer, BitSet> adj) {
-        adj.get(e.getVertex1()).set(e.getVertex2());
-        adj.get(e.getVertex2()).set(e.getVertex1());
-    }
-
-    private static void removeEdge(Edge e, Map<Integer, BitSet> adj) {
-        adj.get(e.getVertex1()).clear(e.getVertex2());
-        adj.get(e.getVertex2()).clear(e.getVertex1());
-    }
-
     private static int getTotalWeight(List<Edge> edges) {
         return edges.stream().mapToInt(Edge::getWeight).sum();
     }
-
-    private static Map<Integer, BitSet> buildAdjacency(List<Edge> edges, Map<Integer, Vertex> vertices) {
-        Map<Integer, BitSet> adj = initializeAdjacency(vertices);
-        for (Edge e : edges) {
-            addEdge(e, adj);
-        }
-        return adj;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,81 @@
+package ru.ac.uniyar.service;
+
+import ru.ac.uniyar.model.Edge;
+import ru.ac.uniyar.model.results.C4C3FreeResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public class ElitePool {
+    private final int capacity;
+    private final List<C4C3FreeResult> members = new ArrayList<>();
+    private final List<long[]> keys = new ArrayList<>();
+
+    public ElitePool(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public synchronized boolean offer(C4C3FreeResult result) {
+        if (result == null) return false;
+        long[] candidate = keys(result.getEdges());
+
+        int replaced = -1, closest = Integer.MAX_VALUE;
+        for (int i = 0; i < members.size(); ++i) {
+            int distance = distance(candidate, keys.get(i));
+            if (distance == 0) return false;
+            if (members.size() == capacity && members.get(i).getWeight() < result.getWeight() && distance < closest) {
+                closest = distance;
+                replaced = i;
+            }
+        }
+
+        if (members.size() < capacity) {
+            members.add(result);
+            keys.add(candidate);
+            return true;
+        }
+        if (replaced < 0) return false;
+        members.set(replaced, result);
+        keys.set(replaced, candidate);
+        return true;
+    }
+
+    public synchronized C4C3FreeResult pick(Random random) {
+        return members.isEmpty() ? null : members.get(random.nextInt(members.size()));
+    }
+
+    public synchronized int size() {
+        return members.size();
+    }
+
+    static long[] keys(List<Edge> edges) {
+        long[] keys = new long[edges.size()];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = key(edges.get(i).getVertex1(), edges.get(i).getVertex2());
+        }
+        Arrays.sort(keys);
+        return keys;
+    }
+
+    static long key(int u, int v) {
+        return (long) Math.min(u, v) << 32 | Math.max(u, v);
+    }
+
+    private static int distance(long[] a, long[] b) {
+        int i = 0, j = 0, common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                ++i;
+            } else if (a[i] > b[j]) {
+                ++j;
+            } else {
+                ++common;
+                ++i;
+                ++j;
+            }
+        }
+        return a.length + b.length - 2 * common;
+    }
+}
@@ -0,0 +1,46 @@
+package ru.ac.uniyar.service;
+
+import ru.ac.uniyar.model.Task;
+import ru.ac.uniyar.utils.distance.DistanceMatrix;
+import ru.ac.uniyar.utils.spatial.NeighbourLists;
+
+public class Instance implements AutoCloseable {
+    private final Task task;
+    private DistanceMatrix distances;
+    private NeighbourLists neighbours;
+    private NeighbourLists symmetricNeighbours;
+
+    private Instance(Task task) {
+        this.task = task;
+    }
+
+    public static Instance of(Task task) {
+        return new Instance(task);
+    }
+
+    public Task getTask() {
+        return task;
+    }
+
+    public synchronized DistanceMatrix getDistances() {
+        if (distances == null) distances = DistanceMatrix.of(task);
+        return distances;
+    }
+
+    public synchronized NeighbourLists getNeighbours() {
+        if (neighbours == null) neighbours = NeighbourLists.build(task);
+        return neighbours;
+    }
+
+    public synchronized NeighbourLists getSymmetricNeighbours() {
+        if (symmetricNeighbours == null) symmetricNeighbours = getNeighbours().symmetric();
+        return symmetricNeighbours;
+    }
+
+    @Override
+    public synchronized void close() {
+        DistanceMatrix closing = distances;
+        distances = null;
+        if (closing != null) closing.close();
+    }
+}
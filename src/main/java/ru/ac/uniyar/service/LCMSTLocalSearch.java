@@ -0,0 +1,212 @@
+package ru.ac.uniyar.service;
+
+import ru.ac.uniyar.model.Edge;
+import ru.ac.uniyar.model.results.LCMSTResult;
+import ru.ac.uniyar.utils.distance.DistanceMatrix;
+import ru.ac.uniyar.utils.spatial.NeighbourLists;
+import ru.ac.uniyar.utils.telemetry.Counter;
+import ru.ac.uniyar.utils.telemetry.Telemetry;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+public class LCMSTLocalSearch {
+    public enum Policy {
+        FIRST_IMPROVEMENT,
+        BEST_IMPROVEMENT
+    }
+
+    private static final Counter EVALUATED = Telemetry.counter("lcmst.exchanges.evaluated");
+    private static final Counter APPLIED = Telemetry.counter("lcmst.exchanges.applied");
+
+    private final int n;
+    private final int maxLeaves;
+    private final DistanceMatrix weights;
+    private final NeighbourLists candidates;
+
+    private final int[] degrees;
+    private final int[] adjStart;
+    private final int[] adjVertex;
+    private final int[] adjEdge;
+    private final int[] tin;
+    private final int[] tout;
+    private final int[] order;
+    private final int[] parentEdge;
+    private final int[] stack;
+    private final int[] cursor;
+    private int reached;
+    private int leafCount;
+    private long evaluated;
+
+    public LCMSTLocalSearch(int n, int maxLeaves, DistanceMatrix weights, NeighbourLists candidates) {
+        this.n = n;
+        this.maxLeaves = maxLeaves;
+        this.weights = weights;
+        this.candidates = candidates;
+        this.degrees = new int[n + 1];
+        this.adjStart = new int[n + 2];
+        this.adjVertex = new int[2 * n];
+        this.adjEdge = new int[2 * n];
+        this.tin = new int[n + 1];
+        this.tout = new int[n + 1];
+        this.order = new int[n];
+        this.parentEdge = new int[n + 1];
+        this.stack = new int[n];
+        this.cursor = new int[n + 1];
+    }
+
+    public boolean improve(LCMSTResult result, Policy policy) {
+        return improve(result, policy, () -> false);
+    }
+
+    public boolean improve(LCMSTResult result, Policy policy, BooleanSupplier stop) {
+        evaluated = 0;
+        try {
+            return search(result, policy, stop);
+        } finally {
+            EVALUATED.add(evaluated);
+        }
+    }
+
+    private boolean search(LCMSTResult result, Policy policy, BooleanSupplier stop) {
+        List<Edge> edges = result.getEdges();
+        if (edges.isEmpty()) return true;
+        index(edges);
+
+        if (policy == Policy.FIRST_IMPROVEMENT) {
+            int sinceLast = 0;
+            for (int i = 0; sinceLast < edges.size(); i = (i + 1) % edges.size()) {
+                Exchange exchange = findExchange(edges, i, true);
+                if (exchange != null) {
+                    apply(result, i, exchange);
+                    sinceLast = 0;
+                    if (stop.getAsBoolean()) return false;
+                } else {
+                    ++sinceLast;
+                }
+            }
+        } else {
+            while (true) {
+                int bestIndex = -1;
+                Exchange best = null;
+                for (int i = 0; i < edges.size(); ++i) {
+                    Exchange exchange = findExchange(edges, i, false);
+                    if (exchange != null && (best == null || exchange.delta < best.delta)) {
+                        best = exchange;
+                        bestIndex = i;
+                    }
+                }
+                if (best == null) break;
+                apply(result, bestIndex, best);
+                if (stop.getAsBoolean()) return false;
+            }
+        }
+        return true;
+    }
+
+    private Exchange findExchange(List<Edge> edges, int i, boolean firstFound) {
+        Edge toRemove = edges.get(i);
+        int a = toRemove.getVertex1(), b = toRemove.getVertex2();
+        int child = parentEdge[a] == i ? a : b;
+        int from = tin[child], to = tout[child];
+        boolean insideSmaller = 2 * (to - from + 1) <= reached;
+
+        Exchange best = null;
+        int lo = insideSmaller ? from : 0;
+        int hi = insideSmaller ? to : reached - 1;
+        for (int pos = lo; pos <= hi; ++pos) {
+            if (!insideSmaller && pos == from) {
+                pos = to;
+                continue;
+            }
+            int x = order[pos];
+            for (int y : candidates.get(x)) {
+                if (tin[y] < 0 || (tin[y] >= from && tin[y] <= to) == insideSmaller) continue;
+                ++evaluated;
+
+                int delta = weights.get(x, y) - toRemove.getWeight();
+                if (delta >= 0 || (best != null && delta >= best.delta)) continue;
+                if (leafCount + leafDelta(a, b, x, y) > maxLeaves) continue;
+
+                best = new Exchange(x, y, delta);
+                if (firstFound) return best;
+            }
+        }
+        return best;
+    }
+
+    private void apply(LCMSTResult result, int i, Exchange exchange) {
+        List<Edge> edges = result.getEdges();
+        edges.set(i, new Edge(exchange.x, exchange.y, weights.get(exchange.x, exchange.y)));
+        result.setWeight(result.getWeight() + exchange.delta);
+        index(edges);
+        result.setLeaves(leafCount);
+        APPLIED.increment();
+    }
+
+    private int leafDelta(int a, int b, int x, int y) {
+        int delta = shift(a, -1) + shift(b, -1) + shift(x, 1) + shift(y, 1);
+        shift(y, -1);
+        shift(x, -1);
+        shift(b, 1);
+        shift(a, 1);
+        return delta;
+    }
+
+    private int shift(int v, int d) {
+        int before = degrees[v] == 1 ? 1 : 0;
+        degrees[v] += d;
+        return (degrees[v] == 1 ? 1 : 0) - before;
+    }
+
+    private void index(List<Edge> edges) {
+        Arrays.fill(degrees, 0);
+        for (Edge e : edges) {
+            degrees[e.getVertex1()]++;
+            degrees[e.getVertex2()]++;
+        }
+        leafCount = 0;
+        adjStart[0] = 0;
+        for (int v = 0; v <= n; ++v) {
+            if (degrees[v] == 1) ++leafCount;
+            adjStart[v + 1] = adjStart[v] + degrees[v];
+        }
+        System.arraycopy(adjStart, 0, cursor, 0, n + 1);
+        for (int i = 0; i < edges.size(); ++i) {
+            Edge e = edges.get(i);
+            int u = e.getVertex1(), v = e.getVertex2();
+            adjVertex[cursor[u]] = v;
+            adjEdge[cursor[u]++] = i;
+            adjVertex[cursor[v]] = u;
+            adjEdge[cursor[v]++] = i;
+        }
+
+        Arrays.fill(tin, -1);
+        System.arraycopy(adjStart, 0, cursor, 0, n + 1);
+        int root = edges.get(0).getVertex1();
+        int top = 0;
+        reached = 0;
+        stack[top++] = root;
+        parentEdge[root] = -1;
+        tin[root] = reached;
+        order[reached++] = root;
+        while (top > 0) {
+            int v = stack[top - 1];
+            if (cursor[v] == adjStart[v + 1]) {
+                tout[v] = reached - 1;
+                --top;
+                continue;
+            }
+            int slot = cursor[v]++;
+            int u = adjVertex[slot];
+            if (tin[u] >= 0) continue;
+            parentEdge[u] = adjEdge[slot];
+            tin[u] = reached;
+            order[reached++] = u;
+            stack[top++] = u;
+        }
+    }
+
+    private record Exchange(int x, int y, int delta) {}
+}
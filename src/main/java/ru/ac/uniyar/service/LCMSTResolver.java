@@ -2,193 +2,335 @@ package ru.ac.uniyar.service;
 
 import ru.ac.uniyar.model.*;
 import ru.ac.uniyar.model.results.LCMSTResult;
+import ru.ac.uniyar.service.anytime.Budget;
+import ru.ac.uniyar.utils.IndexedMinHeap;
 import ru.ac.uniyar.utils.Utils;
+import ru.ac.uniyar.utils.distance.DistanceMatrix;
+import ru.ac.uniyar.utils.spatial.NeighbourLists;
+import ru.ac.uniyar.utils.telemetry.Counter;
+import ru.ac.uniyar.utils.telemetry.Gauge;
+import ru.ac.uniyar.utils.telemetry.Histogram;
+import ru.ac.uniyar.utils.telemetry.Telemetry;
 
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 public class LCMSTResolver {
+    private static final LCMSTLocalSearch.Policy EXCHANGE_POLICY = LCMSTLocalSearch.Policy.FIRST_IMPROVEMENT;
+    private static final int WARM_UP_STARTS = 32;
+    private static final boolean HEURISTIC_PRUNING = System.getProperty("lcmst.heuristicPruning") != null;
+
+    private static final Counter STARTS = Telemetry.counter("lcmst.starts");
+    private static final Counter PRUNED = Telemetry.counter("lcmst.starts.pruned");
+    private static final Counter IMPROVEMENTS = Telemetry.counter("lcmst.incumbent.improvements");
+    private static final Gauge INCUMBENT = Telemetry.gauge("lcmst.incumbent.weight");
+    private static final Histogram CONSTRUCTION = Telemetry.histogram("lcmst.phase.construction.ns");
+    private static final Histogram LOCAL_SEARCH = Telemetry.histogram("lcmst.phase.localSearch.ns");
+
     public static LCMSTResult getAnswer(Task task) {
-        int n = task.getSize();
-        int maxLeaves = n / 16;
-        int[][] weights = new int[n + 1][n + 1];
+        return getAnswer(task, Budget.unlimited(), result -> {});
+    }
 
-        for (int i = 1; i <= n; ++i) {
-            for (int it = 1; it <= n; ++it) {
-                if (i == it) continue;
-                weights[i][it] = Utils.getDistance(task.getVertexes().get(i), task.getVertexes().get(it));
-            }
-        }
+    public static LCMSTResult getAnswer(Task task, Budget budget, Consumer<LCMSTResult> onImprovement) {
+        return getAnswer(task, null, budget, onImprovement);
+    }
 
+    public static LCMSTResult getAnswer(Task task, LCMSTResult warmStart, Budget budget, Consumer<LCMSTResult> onImprovement) {
         ExecutorService executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        List<Callable<LCMSTResult>> tasks = new ArrayList<>();
+        try (Instance instance = Instance.of(task)) {
+            return getAnswer(instance, warmStart, budget, onImprovement, executorService);
+        } finally {
+            executorService.shutdown();
+        }
+    }
 
-        for (int k = 1; k <= n; ++k) {
-            int finalK = k;
-            tasks.add(() -> checkVertex(finalK, n, maxLeaves, weights));
+    public static LCMSTResult getAnswer(Instance instance, Budget budget, Consumer<LCMSTResult> onImprovement,
+                                        ExecutorService executorService) {
+        return getAnswer(instance, null, budget, onImprovement, executorService);
+    }
+
+    public static LCMSTResult getAnswer(Instance instance, LCMSTResult warmStart, Budget budget,
+                                        Consumer<LCMSTResult> onImprovement, ExecutorService executorService) {
+        int n = instance.getTask().getSize();
+        int maxLeaves = maxLeaves(n);
+        DistanceMatrix weights = instance.getDistances();
+        NeighbourLists candidates = instance.getSymmetricNeighbours();
+        int[] roots = orderRoots(n, weights, candidates);
+
+        int threads = Utils.parallelism(executorService);
+        Incumbent incumbent = new Incumbent(Math.max(threads, WARM_UP_STARTS), spanningTreeBound(n, weights), onImprovement);
+        AtomicInteger nextRoot = new AtomicInteger();
+
+        if (warmStart != null) {
+            LCMSTResult tree = reweigh(warmStart, n, maxLeaves, weights);
+            incumbent.offer(new LCMSTResult(tree.getWeight(), tree.getLeaves(), new ArrayList<>(tree.getEdges())),
+                    tree.getWeight(), false);
+            long start = Telemetry.now();
+            new LCMSTLocalSearch(n, maxLeaves, weights, candidates).improve(tree, EXCHANGE_POLICY, budget::isExhausted);
+            LOCAL_SEARCH.recordSince(start);
+            incumbent.offer(tree, tree.getWeight(), false);
+        }
+
+        List<Callable<Void>> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; ++t) {
+            workers.add(() -> {
+                LCMSTLocalSearch search = new LCMSTLocalSearch(n, maxLeaves, weights, candidates);
+                try {
+                    for (int i = nextRoot.getAndIncrement(); i < roots.length && budget.tick(); i = nextRoot.getAndIncrement()) {
+                        checkVertex(roots[i], n, maxLeaves, weights, search, incumbent, budget);
+                    }
+                } finally {
+                    budget.flush();
+                }
+                return null;
+            });
         }
 
-        List<LCMSTResult> LCMSTResults = new ArrayList<>();
         try {
-            for (Future<LCMSTResult> future : executorService.invokeAll(tasks)) {
-                LCMSTResults.add(future.get());
+            for (Future<Void> future : executorService.invokeAll(workers)) {
+                future.get();
             }
         } catch (InterruptedException | ExecutionException e) {
             e.printStackTrace();
-        } finally {
-            executorService.shutdown();
         }
 
-        return LCMSTResults.stream()
-                .min(Comparator.comparingInt(LCMSTResult::getWeight))
-                .orElse(null);
+        return incumbent.getBest();
     }
 
-    private static LCMSTResult checkVertex(int k, int n, int maxLeaves, int[][] weights) {
-        boolean[] spanningTree = new boolean[n + 1];
-        int[] degrees = new int[n + 1];
+    private static void checkVertex(int k, int n, int maxLeaves, DistanceMatrix weights, LCMSTLocalSearch search,
+                                    Incumbent incumbent, Budget budget) {
+        STARTS.increment();
+        long start = Telemetry.now();
+        LCMSTResult LCMSTResult = buildTree(k, n, maxLeaves, weights);
+        CONSTRUCTION.recordSince(start);
+        int constructed = LCMSTResult.getWeight();
+        if (!incumbent.canBeBeaten(constructed)) {
+            PRUNED.increment();
+            return;
+        }
 
-        PriorityQueue<Edge> queue = new PriorityQueue<>(Comparator.comparingInt(Edge::getWeight));
-        LCMSTResult LCMSTResult = new LCMSTResult();
-        LCMSTResult.setEdges(new ArrayList<>());
+        start = Telemetry.now();
+        boolean completed = search.improve(LCMSTResult, EXCHANGE_POLICY,
+                () -> budget.isExhausted() || !incumbent.canBeBeaten(constructed));
+        LOCAL_SEARCH.recordSince(start);
+        incumbent.offer(LCMSTResult, constructed, completed);
+    }
 
-        spanningTree[k] = true;
-        for (int i = 1; i <= n; ++i) {
-            if (i != k) {
-                queue.offer(new Edge(k, i, weights[k][i]));
+    private static LCMSTResult reweigh(LCMSTResult warmStart, int n, int maxLeaves, DistanceMatrix weights) {
+        int[] degrees = new int[n + 1];
+        int[] component = new int[n + 1];
+        for (int v = 1; v <= n; ++v) component[v] = v;
+        List<Edge> edges = new ArrayList<>(warmStart.getEdges().size());
+        int weight = 0;
+        for (Edge edge : warmStart.getEdges()) {
+            int u = edge.getVertex1(), v = edge.getVertex2();
+            if (u < 1 || u > n || v < 1 || v > n || root(component, u) == root(component, v)) {
+                throw new IllegalArgumentException("Warm start is not a spanning tree of this task");
             }
+            component[root(component, u)] = root(component, v);
+            ++degrees[u];
+            ++degrees[v];
+            int w = weights.get(u, v);
+            edges.add(new Edge(u, v, w));
+            weight += w;
         }
+        if (edges.size() != n - 1) {
+            throw new IllegalArgumentException("Warm start is not a spanning tree of this task");
+        }
+        int leaves = (int) Arrays.stream(degrees).filter(degree -> degree == 1).count();
+        if (leaves > maxLeaves) {
+            throw new IllegalArgumentException("Warm start has %d leaves, at most %d allowed".formatted(leaves, maxLeaves));
+        }
+        return new LCMSTResult(weight, leaves, edges);
+    }
 
-        while (LCMSTResult.getEdges().size() < n - 1 && !queue.isEmpty()) {
-            Edge edge = queue.poll();
-            int u = edge.getVertex1();
-            int v = edge.getVertex2();
-
-            if (spanningTree[u] && spanningTree[v]) continue;
-
-            int[] tempDegrees = Arrays.copyOf(degrees, degrees.length);
-            tempDegrees[u]++;
-            tempDegrees[v]++;
+    private static int root(int[] component, int v) {
+        while (component[v] != v) {
+            component[v] = component[component[v]];
+            v = component[v];
+        }
+        return v;
+    }
 
-            int leafCount = 0;
-            for (int deg : tempDegrees) {
-                if (deg == 1) ++leafCount;
+    private static int[] orderRoots(int n, DistanceMatrix weights, NeighbourLists candidates) {
+        long[] spread = new long[n + 1];
+        for (int k = 1; k <= n; ++k) {
+            for (int u : candidates.get(k)) {
+                spread[k] += weights.get(k, u);
             }
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; ++i) {
+            order[i] = i + 1;
+        }
+        Arrays.sort(order, Comparator.<Integer>comparingLong(k -> spread[k]).thenComparingInt(k -> k));
 
-            if (leafCount <= maxLeaves) {
-                LCMSTResult.getEdges().add(edge);
-                degrees = tempDegrees;
-
-                int newNode = spanningTree[u] ? v : u;
-                spanningTree[newNode] = true;
+        int[] roots = new int[n];
+        for (int i = 0; i < n; ++i) {
+            roots[i] = order[i];
+        }
+        return roots;
+    }
 
-                for (int i = 1; i <= n; ++i) {
-                    if (!spanningTree[i]) {
-                        queue.offer(new Edge(newNode, i, weights[newNode][i]));
-                    }
-                }
+    private static long spanningTreeBound(int n, DistanceMatrix weights) {
+        boolean[] inTree = new boolean[n + 1];
+        int[] key = new int[n + 1];
+        Arrays.fill(key, Integer.MAX_VALUE);
+        key[1] = 0;
+        long bound = 0;
+        for (int step = 0; step < n; ++step) {
+            int v = -1;
+            for (int i = 1; i <= n; ++i) {
+                if (!inTree[i] && (v == -1 || key[i] < key[v])) v = i;
+            }
+            inTree[v] = true;
+            bound += key[v];
+            for (int i = 1; i <= n; ++i) {
+                if (!inTree[i]) key[i] = Math.min(key[i], weights.get(v, i));
             }
         }
+        return bound;
+    }
 
-        int finalLeafCount = 0;
-        for (int d : degrees) if (d == 1) ++finalLeafCount;
-        LCMSTResult.setWeight(LCMSTResult.getEdges().stream().mapToInt(Edge::getWeight).sum());
-        LCMSTResult.setLeaves(finalLeafCount);
-        postProcess(LCMSTResult, n, maxLeaves, weights);
-        System.out.println("=================== " + k + " - " + LCMSTResult.getWeight());
+    public static LCMSTResult buildTree(Instance instance, int root) {
+        int n = instance.getTask().getSize();
+        return buildTree(root, n, maxLeaves(n), instance.getDistances());
+    }
 
-        return LCMSTResult;
+    public static int maxLeaves(int n) {
+        return n / 16;
     }
 
-    private static void postProcess(LCMSTResult LCMSTResult, int n, int maxLeaves, int[][] weights) {
-        boolean improved = true;
-        int count = 0;
-
-        while (improved) {
-            improved = false;
-            ++count;
-            System.out.println(count + " : " + LCMSTResult.getWeight());
-            List<Edge> edges = LCMSTResult.getEdges();
-            int[] degrees = new int[n + 1];
-            for (Edge e : edges) {
-                degrees[e.getVertex1()]++;
-                degrees[e.getVertex2()]++;
-            }
+    private static LCMSTResult buildTree(int k, int n, int maxLeaves, DistanceMatrix weights) {
+        boolean[] spanningTree = new boolean[n + 1];
+        int[] degrees = new int[n + 1];
+        int[] parent = new int[n + 1];
+        int[] leaves = new int[n + 1];
+        int[] leafPosition = new int[n + 1];
+        int leafCount = 0;
+        int weight = 0;
 
-            outer:
-            for (int i = 0; i < edges.size(); ++i) {
-                Edge toRemove = edges.get(i);
+        IndexedMinHeap heap = new IndexedMinHeap(n);
+        List<Edge> edges = new ArrayList<>(Math.max(n - 1, 0));
 
-                DSU dsu = new DSU(n);
-                for (int j = 0; j < edges.size(); ++j) {
-                    if (i != j) {
-                        Edge e = edges.get(j);
-                        dsu.union(e.getVertex1(), e.getVertex2());
+        spanningTree[k] = true;
+        for (int i = 1; i <= n; ++i) {
+            if (i != k) {
+                parent[i] = k;
+                heap.push(i, weights.get(k, i));
+            }
+        }
+
+        while (edges.size() < n - 1 && !heap.isEmpty()) {
+            int v = heap.peek();
+            int u = parent[v];
+
+            if (leafCount + leafDelta(degrees[u]) > maxLeaves) {
+                // u can not take more children, so the key of v is only a lower bound: re-key it over the leaves
+                int best = -1, bestWeight = Integer.MAX_VALUE;
+                for (int i = 0; i < leafCount; ++i) {
+                    int leaf = leaves[i];
+                    int w = weights.get(leaf, v);
+                    if (w < bestWeight || (w == bestWeight && leaf < best)) {
+                        bestWeight = w;
+                        best = leaf;
                     }
                 }
+                if (best == -1) {
+                    heap.poll();
+                } else {
+                    parent[v] = best;
+                    heap.update(v, bestWeight);
+                }
+                continue;
+            }
+
+            heap.poll();
+            int w = weights.get(u, v);
+            edges.add(new Edge(u, v, w));
+            weight += w;
+            spanningTree[v] = true;
+
+            if (degrees[u] == 1) {
+                int last = leaves[--leafCount];
+                leaves[leafPosition[u]] = last;
+                leafPosition[last] = leafPosition[u];
+            }
+            if (++degrees[u] == 1) {
+                leafPosition[u] = leafCount;
+                leaves[leafCount++] = u;
+            }
+            degrees[v] = 1;
+            leafPosition[v] = leafCount;
+            leaves[leafCount++] = v;
 
-                for (int u = 1; u <= n; ++u) {
-                    for (int v = u + 1; v <= n; ++v) {
-                        if (dsu.connected(u, v)) continue;
-
-                        int weight = weights[u][v];
-                        if (weight >= toRemove.getWeight()) continue;
-
-                        Edge replacement = new Edge(u, v, weight);
-
-                        degrees[toRemove.getVertex1()]--;
-                        degrees[toRemove.getVertex2()]--;
-                        degrees[u]++;
-                        degrees[v]++;
-
-                        int newLeafCount = 0;
-                        for (int d : degrees) {
-                            if (d == 1) ++newLeafCount;
-                        }
-
-                        if (newLeafCount <= maxLeaves) {
-                            edges.set(i, replacement);
-                            LCMSTResult.setWeight(edges.stream().mapToInt(Edge::getWeight).sum());
-                            LCMSTResult.setLeaves(newLeafCount);
-                            improved = true;
-                            break outer;
-                        } else {
-                            degrees[toRemove.getVertex1()]++;
-                            degrees[toRemove.getVertex2()]++;
-                            degrees[u]--;
-                            degrees[v]--;
-                        }
+            for (int i = 1; i <= n; ++i) {
+                if (!spanningTree[i]) {
+                    int d = weights.get(v, i);
+                    if (d < heap.key(i) || (d == heap.key(i) && v < parent[i])) {
+                        parent[i] = v;
+                        heap.update(i, d);
                     }
                 }
             }
         }
+
+        LCMSTResult LCMSTResult = new LCMSTResult();
+        LCMSTResult.setEdges(edges);
+        LCMSTResult.setWeight(weight);
+        LCMSTResult.setLeaves(leafCount);
+        return LCMSTResult;
     }
 
-    private static class DSU {
-        int[] parent;
+    private static int leafDelta(int degree) {
+        return switch (degree) {
+            case 0 -> 2;
+            case 1 -> 0;
+            default -> 1;
+        };
+    }
 
-        public DSU(int n) {
-            parent = new int[n + 1];
-            for (int i = 1; i <= n; ++i) {
-                parent[i] = i;
-            }
+    private static class Incumbent {
+        private final int warmUp;
+        private final long lowerBound;
+        private final Consumer<LCMSTResult> onImprovement;
+        private volatile int weight = Integer.MAX_VALUE;
+        private volatile double maxGain;
+        private volatile int completed;
+        private LCMSTResult best;
+
+        Incumbent(int warmUp, long lowerBound, Consumer<LCMSTResult> onImprovement) {
+            this.warmUp = warmUp;
+            this.lowerBound = lowerBound;
+            this.onImprovement = onImprovement;
         }
 
-        public int find(int x) {
-            if (parent[x] != x)
-                parent[x] = find(parent[x]);
-            return parent[x];
+        boolean canBeBeaten(int constructed) {
+            if (weight <= lowerBound) return false;
+            // heuristic: extrapolates the best gain seen so far, so it may skip the start that reaches the optimum
+            if (!HEURISTIC_PRUNING || completed < warmUp) return true;
+            return constructed * (1 - maxGain) < weight;
         }
 
-        public void union(int x, int y) {
-            int rootX = find(x);
-            int rootY = find(y);
-            if (rootX != rootY)
-                parent[rootY] = rootX;
+        synchronized void offer(LCMSTResult result, int constructed, boolean complete) {
+            if (complete) {
+                maxGain = Math.max(maxGain, (constructed - result.getWeight()) / (double) constructed);
+                ++completed;
+            }
+            if (result.getWeight() < weight) {
+                best = result;
+                weight = result.getWeight();
+                INCUMBENT.set(weight);
+                IMPROVEMENTS.increment();
+                onImprovement.accept(result);
+            }
         }
 
-        public boolean connected(int x, int y) {
-            return find(x) == find(y);
+        synchronized LCMSTResult getBest() {
+            return best;
         }
     }
 }
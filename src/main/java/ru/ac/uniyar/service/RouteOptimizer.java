@@ -0,0 +1,155 @@
+package ru.ac.uniyar.service;
+
+import ru.ac.uniyar.utils.distance.DistanceMatrix;
+import ru.ac.uniyar.utils.spatial.NeighbourLists;
+import ru.ac.uniyar.utils.telemetry.Counter;
+import ru.ac.uniyar.utils.telemetry.Telemetry;
+
+public class RouteOptimizer {
+    private static final int MAX_SEGMENT = 3;
+    private static final Counter MOVES = Telemetry.counter("vrp.route.moves.applied");
+
+    private final DistanceMatrix dist;
+    private final NeighbourLists neighbours;
+    private final int[] queue;
+    private final boolean[] queued;
+    private final int[] positions = new int[2];
+    private int head;
+    private int count;
+
+    public RouteOptimizer(DistanceMatrix dist, NeighbourLists neighbours) {
+        this.dist = dist;
+        this.neighbours = neighbours;
+        this.queue = new int[dist.size() + 1];
+        this.queued = new boolean[dist.size() + 1];
+    }
+
+    public void optimize(VRPRoute route) {
+        optimize(route, 1, route.size() - 2);
+    }
+
+    public void optimize(VRPRoute route, int from, int to) {
+        head = 0;
+        count = 0;
+        for (int i = Math.max(1, from - 1); i <= Math.min(to + 1, route.size() - 2); ++i) {
+            push(route.get(i));
+        }
+
+        while (count > 0) {
+            int a = queue[head];
+            head = (head + 1) % queue.length;
+            --count;
+            queued[a] = false;
+
+            if (contains(route, a) && (twoOpt(route, a) || orOpt(route, a))) {
+                MOVES.increment();
+                push(a);
+            }
+        }
+    }
+
+    private boolean twoOpt(VRPRoute route, int a) {
+        int p = route.positionOf(a);
+        int longest = Math.max(dist.get(a, route.get(p - 1)), dist.get(a, route.get(p + 1)));
+
+        for (int c : neighbours.get(a)) {
+            if (dist.get(a, c) >= longest) break;
+            int found = positionsOf(route, c);
+            for (int t = 0; t < found; ++t) {
+                int q = positions[t];
+                int lo = Math.min(p, q), hi = Math.max(p, q);
+                if (hi - lo < 2) continue;
+
+                if (hi <= route.size() - 2 && route.reverseDelta(lo + 1, hi) < 0) {
+                    touch(route, lo, lo + 1, hi, hi + 1);
+                    route.reverse(lo + 1, hi);
+                    return true;
+                }
+                if (lo >= 1 && route.reverseDelta(lo, hi - 1) < 0) {
+                    touch(route, lo - 1, lo, hi - 1, hi);
+                    route.reverse(lo, hi - 1);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean orOpt(VRPRoute route, int a) {
+        int p = route.positionOf(a);
+        for (int length = 1; length <= MAX_SEGMENT; ++length) {
+            for (int start = p - length + 1; start <= p; start += Math.max(1, length - 1)) {
+                int end = start + length - 1;
+                if (start < 1 || end > route.size() - 2) continue;
+                if (tryMoveSegment(route, a, start, end)) return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean tryMoveSegment(VRPRoute route, int a, int start, int end) {
+        int first = route.get(start), last = route.get(end);
+        int prev = route.get(start - 1), next = route.get(end + 1);
+        int removeGain = dist.get(prev, first) + dist.get(last, next) - dist.get(prev, next);
+
+        for (int c : neighbours.get(a)) {
+            if (dist.get(a, c) >= removeGain) break;
+            int found = positionsOf(route, c);
+            for (int t = 0; t < found; ++t) {
+                int q = positions[t];
+                for (int k = q - 1; k <= q; ++k) {
+                    if (k < 0 || k + 1 >= route.size() || (k >= start - 1 && k <= end)) continue;
+                    int x = route.get(k), y = route.get(k + 1);
+                    int forward = dist.get(x, first) + dist.get(last, y) - dist.get(x, y);
+                    int backward = dist.get(x, last) + dist.get(first, y) - dist.get(x, y);
+                    boolean reversed = start != end && backward < forward;
+                    if ((reversed ? backward : forward) >= removeGain) continue;
+
+                    touch(route, start - 1, start, end, end + 1);
+                    touch(route, k, k + 1, k, k + 1);
+                    int[] block = route.removeBlock(start, end - start + 1);
+                    if (reversed) {
+                        for (int i = 0, j = block.length - 1; i < j; ++i, --j) {
+                            int temp = block[i];
+                            block[i] = block[j];
+                            block[j] = temp;
+                        }
+                    }
+                    route.insertBlock(k > end ? k + 1 - block.length : k + 1, block);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private int positionsOf(VRPRoute route, int v) {
+        if (v == route.get(0)) {
+            positions[0] = 0;
+            positions[1] = route.size() - 1;
+            return 2;
+        }
+        if (!contains(route, v)) return 0;
+        positions[0] = route.positionOf(v);
+        return 1;
+    }
+
+    private boolean contains(VRPRoute route, int v) {
+        return v != route.get(0) && route.contains(v);
+    }
+
+    private void touch(VRPRoute route, int i, int j, int k, int l) {
+        int depot = route.get(0);
+        for (int index : new int[]{i, j, k, l}) {
+            int v = route.get(index);
+            if (v != depot) push(v);
+        }
+    }
+
+    private void push(int v) {
+        if (queued[v]) return;
+        queued[v] = true;
+        queue[(head + count) % queue.length] = v;
+        ++count;
+    }
+}
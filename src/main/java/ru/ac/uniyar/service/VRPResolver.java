@@ -1,298 +1,361 @@
 package ru.ac.uniyar.service;
 
-import lombok.Getter;
 import ru.ac.uniyar.model.Task;
 import ru.ac.uniyar.model.results.VRPResult;
-import ru.ac.uniyar.utils.Utils;
-import ru.ac.uniyar.utils.Validator;
-import ru.ac.uniyar.utils.Writer;
+import ru.ac.uniyar.service.anytime.BestSoFar;
+import ru.ac.uniyar.service.anytime.Budget;
+import ru.ac.uniyar.utils.TabuMemory;
+import ru.ac.uniyar.utils.cluster.KMedoids;
+import ru.ac.uniyar.utils.distance.DistanceMatrix;
+import ru.ac.uniyar.utils.spatial.GridIndex;
+import ru.ac.uniyar.utils.spatial.NeighbourLists;
+import ru.ac.uniyar.utils.telemetry.Counter;
+import ru.ac.uniyar.utils.telemetry.Gauge;
+import ru.ac.uniyar.utils.telemetry.Histogram;
+import ru.ac.uniyar.utils.telemetry.Telemetry;
 
-import java.time.Duration;
-import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 public class VRPResolver {
 
     private static final int MAX_OPT_ITER = 100;
-    private static final int NUM_TRIALS = 10;
+    private static final int SCREENED_DEPOTS = 32;
+    private static final int RACED_DEPOTS = 8;
+    private static final int SCREENING_TRIALS = 4;
+    private static final int FIRST_RUNG_TRIALS = 2;
+    private static final int TRIAL_ALLOWANCE = 48;
+    private static final int MAX_CLUSTER_PASSES = 10;
+
+    private static final Counter SCREENINGS = Telemetry.counter("vrp.screenings");
+    private static final Counter TRIALS = Telemetry.counter("vrp.trials");
+    private static final Counter MOVES = Telemetry.counter("vrp.moves.applied");
+    private static final Counter TABU_EVALUATED = Telemetry.counter("vrp.tabu.moves.evaluated");
+    private static final Counter IMPROVEMENTS = Telemetry.counter("vrp.incumbent.improvements");
+    private static final Gauge INCUMBENT = Telemetry.gauge("vrp.incumbent.maxCycleWeight");
+    private static final Histogram CONSTRUCTION = Telemetry.histogram("vrp.phase.construction.ns");
+    private static final Histogram INTER_ROUTE = Telemetry.histogram("vrp.phase.interRoute.ns");
+    private static final Histogram TABU = Telemetry.histogram("vrp.phase.tabu.ns");
 
     public static VRPResult getAnswer(Task task) {
+        return getAnswer(task, Budget.unlimited(), result -> {});
+    }
+
+    public static VRPResult getAnswer(Task task, Budget budget, Consumer<VRPResult> onImprovement) {
+        return getAnswer(task, budget, onImprovement, false);
+    }
+
+    public static VRPResult getAnswer(Task task, Budget budget, Consumer<VRPResult> onImprovement, boolean parallelNeighbourhoods) {
+        return getAnswer(task, null, budget, onImprovement, parallelNeighbourhoods);
+    }
+
+    public static VRPResult getAnswer(Task task, VRPResult warmStart, Budget budget, Consumer<VRPResult> onImprovement,
+                                      boolean parallelNeighbourhoods) {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try (Instance instance = Instance.of(task)) {
+            return getAnswer(instance, warmStart, budget, onImprovement, parallelNeighbourhoods, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public static VRPResult getAnswer(Instance instance, Budget budget, Consumer<VRPResult> onImprovement,
+                                      boolean parallelNeighbourhoods, ExecutorService executor) {
+        return getAnswer(instance, null, budget, onImprovement, parallelNeighbourhoods, executor);
+    }
+
+    public static VRPResult getAnswer(Instance instance, VRPResult warmStart, Budget budget, Consumer<VRPResult> onImprovement,
+                                      boolean parallelNeighbourhoods, ExecutorService executor) {
+        Task task = instance.getTask();
         int n = task.getSize();
         int m = (int) (Math.log(n) / Math.log(2));
 
-        int[][] dist = new int[n + 1][n + 1];
+        DistanceMatrix dist = instance.getDistances();
+        NeighbourLists neighbours = instance.getNeighbours();
+        long[] rowSums = new long[n + 1];
+        int[] eccentricity = new int[n + 1];
         for (int i = 1; i <= n; i++) {
             for (int j = 1; j <= n; j++) {
-                dist[i][j] = Utils.getDistance(task.getVertexes().get(i), task.getVertexes().get(j));
+                rowSums[i] += dist.get(i, j);
+                eccentricity[i] = Math.max(eccentricity[i], dist.get(i, j));
             }
         }
 
         List<Integer> candidates = new ArrayList<>();
         for (int i = 1; i <= n; i++) candidates.add(i);
 
-        candidates.sort(Comparator.comparingInt(i -> Arrays.stream(dist[i]).sum()));
+        candidates.sort(Comparator.comparingLong(i -> rowSums[i]));
 
-        List<Integer> bestDepots = candidates.subList(0, 10);
+        List<Integer> screened = new ArrayList<>(candidates.subList(0, Math.min(SCREENED_DEPOTS, n)));
 
-        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
-        List<CompletableFuture<VRPResult>> futures = new ArrayList<>();
+        BestSoFar<VRPResult> best = new BestSoFar<>(Comparator
+                .comparingInt(VRPResult::getMaxCycleWeight)
+                .thenComparingInt(VRPResult::getTotalWeight), result -> {
+            INCUMBENT.set(result.getMaxCycleWeight());
+            IMPROVEMENTS.increment();
+            onImprovement.accept(result);
+        });
+        int[] score = new int[n + 1];
+        Arrays.fill(score, Integer.MAX_VALUE);
 
-        for (int depot : bestDepots) {
-            final int currentDepot = depot;
-            for (int t = 0; t < NUM_TRIALS; ++t) {
-                int finalT = t;
-                futures.add(CompletableFuture.supplyAsync(() -> computeResultForDepot(task, currentDepot, m, dist, finalT), executor));
-            }
+        if (warmStart != null) {
+            VRPResult resumed = resume(warmStart, n, m, dist, neighbours, best, budget, parallelNeighbourhoods);
+            score[resumed.getDepot()] = resumed.getMaxCycleWeight();
         }
 
-        List<VRPResult> results = futures.stream()
-                .map(CompletableFuture::join)
-                .toList();
-
-        executor.shutdown();
+        race(executor, screened, 0, SCREENING_TRIALS, budget, best, score,
+                (depot, seed) -> constructResultForDepot(task, depot, m, dist, neighbours, seed, budget));
+        screened.sort(Comparator.comparingInt(depot -> score[depot]));
+
+        List<Integer> survivors = new ArrayList<>(screened.subList(0, Math.min(RACED_DEPOTS, screened.size())));
+        BiFunction<Integer, Integer, VRPResult> trial =
+                (depot, seed) -> computeResultForDepot(task, depot, m, dist, neighbours, seed, budget, parallelNeighbourhoods);
+        int trials = FIRST_RUNG_TRIALS, firstSeed = 0, used = 0;
+        while (!budget.isExhausted()) {
+            VRPResult incumbent = best.get();
+            survivors.removeIf(depot -> incumbent != null && 2 * eccentricity[depot] > incumbent.getMaxCycleWeight());
+            if (survivors.size() <= 1) break;
+
+            race(executor, survivors, firstSeed, trials, budget, best, score, trial);
+            used += survivors.size() * trials;
+            firstSeed += trials;
+            trials *= 2;
+
+            survivors.sort(Comparator.comparingInt(depot -> score[depot]));
+            survivors = new ArrayList<>(survivors.subList(0, (survivors.size() + 1) / 2));
+        }
 
-        return results.stream()
-                .min(Comparator
-                        .comparingInt(VRPResult::getMaxCycleWeight)
-                        .thenComparingInt(VRPResult::getTotalWeight))
-                .orElse(null);
+        if (survivors.size() == 1 && used < TRIAL_ALLOWANCE && !budget.isExhausted()) {
+            race(executor, survivors, firstSeed, TRIAL_ALLOWANCE - used, budget, best, score, trial);
+        }
+        budget.flush();
+        return best.get();
     }
 
-    private static VRPResult computeResultForDepot(Task task, int depot, int m, int[][] dist, int seed) {
-        Instant start = Instant.now();
-        List<Integer> otherVertices = new ArrayList<>();
-        for (int i = 1; i <= task.getSize(); ++i) {
-            if (i != depot) otherVertices.add(i);
+    private static void race(ExecutorService executor, List<Integer> depots, int firstSeed, int trials, Budget budget,
+                             BestSoFar<VRPResult> best, int[] score, BiFunction<Integer, Integer, VRPResult> run) {
+        List<CompletableFuture<VRPResult>> futures = new ArrayList<>();
+        for (int depot : depots) {
+            for (int t = 0; t < trials; ++t) {
+                int seed = firstSeed + t;
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        VRPResult result = run.apply(depot, seed);
+                        best.offer(result);
+                        return result;
+                    } finally {
+                        budget.flush();
+                    }
+                }, executor));
+            }
         }
 
-        List<List<Integer>> clusters = clusterWithMedoids(otherVertices, m, dist, seed);
-        adaptiveBalanceClusters(clusters, dist, depot);
+        for (CompletableFuture<VRPResult> future : futures) {
+            VRPResult result = future.join();
+            if (result != null) {
+                score[result.getDepot()] = Math.min(score[result.getDepot()], result.getMaxCycleWeight());
+            }
+        }
+    }
 
-        Map<Integer, List<Integer>> ways = new ConcurrentHashMap<>();
+    private static VRPResult constructResultForDepot(Task task, int depot, int m, DistanceMatrix dist, NeighbourLists neighbours,
+                                                     int seed, Budget budget) {
+        if (budget.isExhausted()) return null;
+        SCREENINGS.increment();
+        return toResult(depot, construct(task, depot, m, dist, neighbours, seed, budget, new RouteOptimizer(dist, neighbours)));
+    }
 
-        int vehicleId = 1;
-        for (List<Integer> cluster : clusters) {
-            List<Integer> route = improveRoute(buildRoute(cluster, depot, dist), dist);
-            ways.put(vehicleId++, route);
-        }
+    private static VRPResult computeResultForDepot(Task task, int depot, int m, DistanceMatrix dist, NeighbourLists neighbours, int seed,
+                                                   Budget budget, boolean parallel) {
+        if (budget.isExhausted()) return null;
+        TRIALS.increment();
+        RouteOptimizer optimizer = new RouteOptimizer(dist, neighbours);
+        List<VRPRoute> routes = construct(task, depot, m, dist, neighbours, seed, budget, optimizer);
+        return toResult(depot, improve(routes, optimizer, budget, parallel));
+    }
 
-        for (int iter = 0; iter < MAX_OPT_ITER; iter++) {
-            boolean improved = false;
-            List<Integer> keys = new ArrayList<>(ways.keySet());
-
-            for (int i = 0; i < keys.size(); i++) {
-                for (int j = i + 1; j < keys.size(); j++) {
-                    List<Integer> routeA = new ArrayList<>(ways.get(keys.get(i)));
-                    List<Integer> routeB = new ArrayList<>(ways.get(keys.get(j)));
-
-                    int currentMax = Math.max(calculateRouteLength(routeA, dist), calculateRouteLength(routeB, dist));
-
-                    for (int a = 1; a < routeA.size() - 1; a++) {
-                        for (int b = 1; b < routeB.size() - 1; b++) {
-                            int tempA = routeA.get(a);
-                            int tempB = routeB.get(b);
-                            routeA.set(a, tempB);
-                            routeB.set(b, tempA);
-
-                            int newMax = Math.max(calculateRouteLength(routeA, dist), calculateRouteLength(routeB, dist));
-                            if (newMax < currentMax) {
-                                ways.put(keys.get(i), improveRoute(routeA, dist));
-                                ways.put(keys.get(j), improveRoute(routeB, dist));
-                                improved = true;
-                                break;
-                            } else {
-                                routeA.set(a, tempA);
-                                routeB.set(b, tempB);
-                            }
-                        }
-                        if (improved) break;
-                    }
-                    if (improved) break;
-                }
-                if (improved) break;
+    private static VRPResult resume(VRPResult warmStart, int n, int m, DistanceMatrix dist, NeighbourLists neighbours,
+                                    BestSoFar<VRPResult> best, Budget budget, boolean parallel) {
+        int depot = warmStart.getDepot();
+        boolean[] visited = new boolean[n + 1];
+        visited[depot] = true;
+        int covered = 1;
+        List<VRPRoute> routes = new ArrayList<>();
+        for (List<Integer> way : warmStart.getWays().values()) {
+            if (way.size() < 2 || way.get(0) != depot || way.get(way.size() - 1) != depot) {
+                throw new IllegalArgumentException("Warm start route does not start and end at depot " + depot);
             }
-            if (!improved) break;
-        }
-
-        for (int iter = 0; iter < MAX_OPT_ITER; iter++) {
-            boolean improved = false;
-            List<Map.Entry<Integer, Integer>> sorted = ways.entrySet().stream()
-                    .map(e -> Map.entry(e.getKey(), calculateRouteLength(e.getValue(), dist)))
-                    .sorted(Map.Entry.comparingByValue())
-                    .toList();
-
-            int longest = sorted.get(sorted.size() - 1).getKey();
-            int shortest = sorted.get(0).getKey();
-
-            List<Integer> longRoute = new ArrayList<>(ways.get(longest));
-            List<Integer> shortRoute = new ArrayList<>(ways.get(shortest));
-
-            for (int i = 1; i < longRoute.size() - 1; i++) {
-                int city = longRoute.get(i);
-                List<Integer> newLong = new ArrayList<>(longRoute);
-                newLong.remove(i);
-
-                for (int j = 1; j < shortRoute.size(); j++) {
-                    List<Integer> newShort = new ArrayList<>(shortRoute);
-                    newShort.add(j, city);
-                    int newMax = Math.max(calculateRouteLength(newLong, dist), calculateRouteLength(newShort, dist));
-                    if (newMax < calculateRouteLength(longRoute, dist)) {
-                        ways.put(longest, improveRoute(newLong, dist));
-                        ways.put(shortest, improveRoute(newShort, dist));
-                        improved = true;
-                        break;
-                    }
+            for (int i = 1; i < way.size() - 1; ++i) {
+                int v = way.get(i);
+                if (v < 1 || v > n || visited[v]) {
+                    throw new IllegalArgumentException("Warm start visits vertex " + v + " more than once or out of range");
                 }
-                if (improved) break;
+                visited[v] = true;
+                ++covered;
             }
+            routes.add(new VRPRoute(new ArrayList<>(way), dist));
         }
-
-        for (int iter = 0; iter < MAX_OPT_ITER; iter++) {
-            if (!moveBlockBetweenRoutes(ways, dist, 3)) break;
+        if (routes.size() != m || covered != n) {
+            throw new IllegalArgumentException("Warm start must visit all %d vertices with %d routes".formatted(n, m));
         }
 
-        tabuSearch(ways, dist, MAX_OPT_ITER, 15);
-
-        VRPResult result = new VRPResult();
-        result.setDepot(depot);
-        result.setWays(ways);
-        result.setMaxCycleWeight(ways.values().stream().mapToInt(r -> calculateRouteLength(r, dist)).max().orElse(0));
-        result.setTotalWeight(ways.values().stream().mapToInt(r -> calculateRouteLength(r, dist)).sum());
+        RouteOptimizer optimizer = new RouteOptimizer(dist, neighbours);
+        VRPResult result = toResult(depot, routes);
+        best.offer(result);
+        for (VRPRoute route : routes) {
+            optimizer.optimize(route);
+        }
 
-        System.out.println(depot + " " + result.getMaxCycleWeight() + " " + result.getTotalWeight() + " " + Duration.between(start, Instant.now()).toMillis());
-//        Validator.validateVRPResult(task, result);
-//        Writer.writeVRPResult(result, "src/main/resources/result/vrp/4096/%s_%s_%s.txt".formatted(depot, result.getMaxCycleWeight(), result.getTotalWeight()), task);
+        VRPResult previous;
+        do {
+            previous = result;
+            routes = improve(routes, optimizer, budget, parallel);
+            result = toResult(depot, routes);
+            best.offer(result);
+        } while (result.getMaxCycleWeight() < previous.getMaxCycleWeight() && !budget.isExhausted());
         return result;
     }
 
-    private static List<List<Integer>> clusterWithMedoids(List<Integer> vertices, int m, int[][] dist, int seed) {
-        List<List<Integer>> clusters = new ArrayList<>();
-        for (int i = 0; i < m; ++i) clusters.add(new ArrayList<>());
+    private static List<VRPRoute> improve(List<VRPRoute> routes, RouteOptimizer optimizer, Budget budget, boolean parallel) {
+        long start = Telemetry.now();
 
-        Random random = new Random(seed);
-        List<Integer> medoids = new ArrayList<>();
-        medoids.add(vertices.get(random.nextInt(vertices.size())));
+        for (int iter = 0; iter < MAX_OPT_ITER && budget.tick(); iter++) {
+            if (!swapBetweenRoutes(routes, optimizer, parallel)) break;
+        }
 
-        while (medoids.size() < m) {
-            Map<Integer, Integer> minDistances = new HashMap<>();
-            for (int v : vertices) {
-                int minDist = medoids.stream().mapToInt(medoid -> dist[v][medoid]).min().orElse(Integer.MAX_VALUE);
-                minDistances.put(v, minDist);
-            }
-            int total = minDistances.values().stream().mapToInt(Integer::intValue).sum();
-            int r = random.nextInt(total);
-            int cumulative = 0;
-            for (Map.Entry<Integer, Integer> entry : minDistances.entrySet()) {
-                cumulative += entry.getValue();
-                if (cumulative >= r) {
-                    medoids.add(entry.getKey());
-                    break;
-                }
-            }
+        for (int iter = 0; iter < MAX_OPT_ITER && budget.tick(); iter++) {
+            if (!moveFromLongestToShortest(routes, optimizer)) break;
         }
 
-        boolean changed;
-        do {
-            changed = false;
-            for (List<Integer> cluster : clusters) cluster.clear();
-            for (int v : vertices) {
-                int best = -1, minDist = Integer.MAX_VALUE;
-                for (int i = 0; i < medoids.size(); ++i) {
-                    int d = dist[v][medoids.get(i)];
-                    if (d < minDist) {
-                        minDist = d;
-                        best = i;
-                    }
-                }
-                clusters.get(best).add(v);
-            }
+        for (int iter = 0; iter < MAX_OPT_ITER && budget.tick(); iter++) {
+            if (!moveBlockBetweenRoutes(routes, 3, optimizer, parallel)) break;
+        }
 
-            List<Integer> newMedoids = new ArrayList<>();
-            for (List<Integer> cluster : clusters) {
-                int best = -1, minTotal = Integer.MAX_VALUE;
-                for (int candidate : cluster) {
-                    int total = cluster.stream().mapToInt(v -> dist[v][candidate]).sum();
-                    if (total < minTotal) {
-                        minTotal = total;
-                        best = candidate;
-                    }
-                }
-                newMedoids.add(best);
-            }
+        INTER_ROUTE.recordSince(start);
 
-            if (!new HashSet<>(newMedoids).equals(new HashSet<>(medoids))) {
-                medoids = newMedoids;
-                changed = true;
-            }
-        } while (changed);
+        start = Telemetry.now();
+        routes = tabuSearch(routes, MAX_OPT_ITER, 15, optimizer, budget, parallel);
+        TABU.recordSince(start);
+        return routes;
+    }
 
-        return clusters;
+    private static List<VRPRoute> construct(Task task, int depot, int m, DistanceMatrix dist, NeighbourLists neighbours, int seed,
+                                            Budget budget, RouteOptimizer optimizer) {
+        long start = Telemetry.now();
+        List<Integer> otherVertices = new ArrayList<>();
+        for (int i = 1; i <= task.getSize(); ++i) {
+            if (i != depot) otherVertices.add(i);
+        }
+
+        List<List<Integer>> clusters = clusterWithMedoids(otherVertices, m, dist, seed, budget);
+        List<VRPRoute> routes = adaptiveBalanceClusters(task, clusters, dist, neighbours, depot);
+        for (VRPRoute route : routes) {
+            optimizer.optimize(route);
+        }
+        CONSTRUCTION.recordSince(start);
+        return routes;
     }
 
-    private static void adaptiveBalanceClusters(List<List<Integer>> clusters, int[][] dist, int depot) {
-        boolean changed = true;
-        while (changed) {
-            changed = false;
+    private static VRPResult toResult(int depot, List<VRPRoute> routes) {
+        Map<Integer, List<Integer>> ways = new HashMap<>();
+        for (int i = 0; i < routes.size(); ++i) {
+            ways.put(i + 1, routes.get(i).toList());
+        }
 
-            List<Pair<Integer, Integer>> clusterWeights = new ArrayList<>();
-            for (int i = 0; i < clusters.size(); ++i) {
-                List<Integer> route = buildRoute(clusters.get(i), depot, dist);
-                int length = calculateRouteLength(route, dist);
-                clusterWeights.add(new Pair<>(i, length));
-            }
+        VRPResult result = new VRPResult();
+        result.setDepot(depot);
+        result.setWays(ways);
+        result.setMaxCycleWeight(routes.stream().mapToInt(VRPRoute::length).max().orElse(0));
+        result.setTotalWeight(routes.stream().mapToInt(VRPRoute::length).sum());
+        return result;
+    }
 
-            clusterWeights.sort(Comparator.comparingInt(Pair::getValue));
-            int lightestId = clusterWeights.get(0).getKey();
-            int heaviestId = clusterWeights.get(clusterWeights.size() - 1).getKey();
+    private static List<List<Integer>> clusterWithMedoids(List<Integer> vertices, int m, DistanceMatrix dist, int seed,
+                                                          Budget budget) {
+        KMedoids medoids = new KMedoids(vertices, m, dist);
+        medoids.seed(new Random(seed));
+        medoids.swap(MAX_CLUSTER_PASSES, budget::isExhausted);
+        return medoids.clusters();
+    }
 
+    private static List<VRPRoute> adaptiveBalanceClusters(Task task, List<List<Integer>> clusters, DistanceMatrix dist,
+                                                          NeighbourLists neighbours, int depot) {
+        List<VRPRoute> routes = new ArrayList<>();
+        for (List<Integer> cluster : clusters) {
+            routes.add(new VRPRoute(buildRoute(task, cluster, depot), dist));
+        }
+
+        while (true) {
+            int lightestId = 0, heaviestId = 0;
+            for (int i = 1; i < routes.size(); ++i) {
+                if (routes.get(i).length() < routes.get(lightestId).length()) lightestId = i;
+                if (routes.get(i).length() >= routes.get(heaviestId).length()) heaviestId = i;
+            }
             if (lightestId == heaviestId) break;
 
-            List<Integer> heaviest = clusters.get(heaviestId);
-            List<Integer> lightest = clusters.get(lightestId);
+            VRPRoute heaviest = routes.get(heaviestId);
+            VRPRoute lightest = routes.get(lightestId);
+            int oldMax = heaviest.length();
 
             int bestGain = 0;
             int bestNode = -1;
-            int oldHeavyLen = calculateRouteLength(buildRoute(heaviest, depot, dist), dist);
-            int oldLightLen = calculateRouteLength(buildRoute(lightest, depot, dist), dist);
-
-            for (int node : heaviest) {
-                if (node == depot) continue;
-                List<Integer> newHeavy = new ArrayList<>(heaviest);
-                newHeavy.remove((Integer) node);
-                List<Integer> newLight = new ArrayList<>(lightest);
-                newLight.add(node);
-
-                int newHeavyLen = calculateRouteLength(buildRoute(newHeavy, depot, dist), dist);
-                int newLightLen = calculateRouteLength(buildRoute(newLight, depot, dist), dist);
-
-                int newMax = Math.max(newHeavyLen, newLightLen);
-                int oldMax = Math.max(oldHeavyLen, oldLightLen);
-                int gain = oldMax - newMax;
+            for (int pos = 1; pos < heaviest.size() - 1; ++pos) {
+                int node = heaviest.get(pos);
+                int newHeavyLen = heaviest.length() + heaviest.removeDelta(pos);
+                int newLightLen = lightest.length() + cheapestInsertion(lightest, node, neighbours);
 
+                int gain = oldMax - Math.max(newHeavyLen, newLightLen);
                 if (gain > bestGain) {
                     bestGain = gain;
                     bestNode = node;
                 }
             }
-
-            if (bestGain > 0) {
-                heaviest.remove((Integer) bestNode);
-                lightest.add(bestNode);
-                changed = true;
+            if (bestNode < 0) break;
+
+            List<Integer> heavyCluster = clusters.get(heaviestId);
+            List<Integer> lightCluster = clusters.get(lightestId);
+            heavyCluster.remove((Integer) bestNode);
+            lightCluster.add(bestNode);
+            VRPRoute newHeaviest = new VRPRoute(buildRoute(task, heavyCluster, depot), dist);
+            VRPRoute newLightest = new VRPRoute(buildRoute(task, lightCluster, depot), dist);
+
+            if (Math.max(newHeaviest.length(), newLightest.length()) >= oldMax) {
+                lightCluster.remove((Integer) bestNode);
+                heavyCluster.add(bestNode);
+                break;
             }
+            routes.set(heaviestId, newHeaviest);
+            routes.set(lightestId, newLightest);
+        }
+        return routes;
+    }
+
+    private static int cheapestInsertion(VRPRoute route, int node, NeighbourLists neighbours) {
+        int best = Integer.MAX_VALUE;
+        for (int c : neighbours.get(node)) {
+            if (c == route.get(0) || !route.contains(c)) continue;
+            int pos = route.positionOf(c);
+            best = Math.min(best, Math.min(route.insertDelta(pos, node), route.insertDelta(pos + 1, node)));
+        }
+        if (best != Integer.MAX_VALUE) return best;
+
+        for (int pos = 1; pos < route.size(); ++pos) {
+            best = Math.min(best, route.insertDelta(pos, node));
         }
+        return best;
     }
 
-    private static List<Integer> buildRoute(List<Integer> cluster, int depot, int[][] dist) {
+    private static List<Integer> buildRoute(Task task, List<Integer> cluster, int depot) {
         List<Integer> route = new ArrayList<>();
         route.add(depot);
-        Set<Integer> unvisited = new HashSet<>(cluster);
+        GridIndex unvisited = new GridIndex(task, cluster);
         int current = depot;
 
-        while (!unvisited.isEmpty()) {
-            int finalCurrent = current;
-            int next = unvisited.stream().min(Comparator.comparingInt(v -> dist[finalCurrent][v])).orElseThrow();
+        while (unvisited.size() > 0) {
+            int next = unvisited.nearest(task.getX(current), task.getY(current));
             route.add(next);
             unvisited.remove(next);
             current = next;
@@ -303,224 +366,204 @@ public class VRPResolver {
     }
 
 
-    private static void tabuSearch(Map<Integer, List<Integer>> ways, int[][] dist, int maxIters, int tabuTenure) {
-        Map<String, Integer> tabuList = new HashMap<>();
-        int iteration = 0;
+    private static boolean swapBetweenRoutes(List<VRPRoute> routes, RouteOptimizer optimizer, boolean parallel) {
+        int m = routes.size();
+        Swap swap = routePairs(m, parallel)
+                .mapToObj(p -> findSwap(routes, p / m, p % m))
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+        if (swap == null) return false;
+
+        VRPRoute routeA = routes.get(swap.routeA);
+        VRPRoute routeB = routes.get(swap.routeB);
+        int nodeA = routeA.get(swap.posA);
+        routeA.set(swap.posA, routeB.get(swap.posB));
+        routeB.set(swap.posB, nodeA);
+        MOVES.increment();
+        optimizer.optimize(routeA, swap.posA, swap.posA);
+        optimizer.optimize(routeB, swap.posB, swap.posB);
+        return true;
+    }
 
-        int bestMax = ways.values().stream().mapToInt(r -> calculateRouteLength(r, dist)).max().orElse(Integer.MAX_VALUE);
-        Map<Integer, List<Integer>> bestWays = new HashMap<>(ways);
+    private static Swap findSwap(List<VRPRoute> routes, int i, int j) {
+        if (j <= i) return null;
+        VRPRoute routeA = routes.get(i);
+        VRPRoute routeB = routes.get(j);
+        int currentMax = Math.max(routeA.length(), routeB.length());
+
+        for (int a = 1; a < routeA.size() - 1; a++) {
+            for (int b = 1; b < routeB.size() - 1; b++) {
+                int newMax = Math.max(routeA.length() + routeA.replaceDelta(a, routeB.get(b)),
+                        routeB.length() + routeB.replaceDelta(b, routeA.get(a)));
+                if (newMax < currentMax) {
+                    return new Swap(i, j, a, b);
+                }
+            }
+        }
+        return null;
+    }
 
-        while (iteration < maxIters) {
-            boolean moved = false;
-            int bestDelta = Integer.MAX_VALUE;
-            Move bestMove = null;
-
-            List<Integer> keys = new ArrayList<>(ways.keySet());
-
-            for (int i = 0; i < keys.size(); ++i) {
-                for (int j = 0; j < keys.size(); ++j) {
-                    if (i == j) continue;
-                    List<Integer> from = ways.get(keys.get(i));
-                    List<Integer> to = ways.get(keys.get(j));
-
-                    for (int pos = 1; pos < from.size() - 1; pos++) {
-                        int node = from.get(pos);
-                        for (int insert = 1; insert < to.size(); insert++) {
-                            List<Integer> newFrom = new ArrayList<>(from);
-                            List<Integer> newTo = new ArrayList<>(to);
-                            newFrom.remove(pos);
-                            newTo.add(insert, node);
-
-                            int newMax = Math.max(calculateRouteLength(newFrom, dist), calculateRouteLength(newTo, dist));
-                            int currentMax = Math.max(calculateRouteLength(from, dist), calculateRouteLength(to, dist));
-                            int delta = newMax - currentMax;
-
-                            String moveKey = keys.get(i) + "->" + keys.get(j) + ":" + node;
-
-                            if ((delta < bestDelta && (!tabuList.containsKey(moveKey) || newMax < bestMax))) {
-                                bestDelta = delta;
-                                bestMove = new Move(keys.get(i), keys.get(j), node, pos, insert, moveKey);
-                            }
-                        }
-                    }
+    private record Swap(int routeA, int routeB, int posA, int posB) {}
+
+    private static IntStream routePairs(int m, boolean parallel) {
+        IntStream pairs = IntStream.range(0, m * m);
+        return parallel ? pairs.parallel() : pairs;
+    }
+
+    private static boolean moveFromLongestToShortest(List<VRPRoute> routes, RouteOptimizer optimizer) {
+        int longest = 0, shortest = 0;
+        for (int i = 1; i < routes.size(); ++i) {
+            if (routes.get(i).length() >= routes.get(longest).length()) longest = i;
+            if (routes.get(i).length() < routes.get(shortest).length()) shortest = i;
+        }
+
+        VRPRoute longRoute = routes.get(longest);
+        VRPRoute shortRoute = routes.get(shortest);
+
+        for (int i = 1; i < longRoute.size() - 1; i++) {
+            int city = longRoute.get(i);
+            int newLong = longRoute.length() + longRoute.removeDelta(i);
+
+            for (int j = 1; j < shortRoute.size(); j++) {
+                int newMax = Math.max(newLong, shortRoute.length() + shortRoute.insertDelta(j, city));
+                if (newMax < longRoute.length()) {
+                    longRoute.remove(i);
+                    shortRoute.insert(j, city);
+                    MOVES.increment();
+                    optimizer.optimize(longRoute, i - 1, i);
+                    optimizer.optimize(shortRoute, j, j);
+                    return true;
                 }
             }
+        }
+        return false;
+    }
+
+    private static List<VRPRoute> tabuSearch(List<VRPRoute> routes, int maxIters, int tabuTenure, RouteOptimizer optimizer,
+                                             Budget budget, boolean parallel) {
+        TabuMemory tabuList = new TabuMemory();
+        int iteration = 0;
+        int m = routes.size();
+
+        int bestMax = routes.stream().mapToInt(VRPRoute::length).max().orElse(Integer.MAX_VALUE);
+        List<VRPRoute> bestRoutes = copyRoutes(routes);
+
+        while (iteration < maxIters && budget.tick()) {
+            boolean moved = false;
+            int finalBestMax = bestMax;
+            Move bestMove = routePairs(m, parallel)
+                    .mapToObj(p -> findTabuMove(routes, p / m, p % m, tabuList, finalBestMax))
+                    .filter(Objects::nonNull)
+                    .reduce((a, b) -> b.delta < a.delta ? b : a)
+                    .orElse(null);
 
             if (bestMove != null) {
-                List<Integer> from = new ArrayList<>(ways.get(bestMove.fromId));
-                List<Integer> to = new ArrayList<>(ways.get(bestMove.toId));
+                VRPRoute from = routes.get(bestMove.fromId);
+                VRPRoute to = routes.get(bestMove.toId);
 
                 from.remove(bestMove.fromPos);
-                to.add(bestMove.toPos, bestMove.node);
+                to.insert(bestMove.toPos, bestMove.node);
+                MOVES.increment();
 
-                ways.put(bestMove.fromId, improveRoute(from, dist));
-                ways.put(bestMove.toId, improveRoute(to, dist));
+                optimizer.optimize(from, bestMove.fromPos - 1, bestMove.fromPos);
+                optimizer.optimize(to, bestMove.toPos, bestMove.toPos);
 
-                int newMax = ways.values().stream().mapToInt(r -> calculateRouteLength(r, dist)).max().orElse(Integer.MAX_VALUE);
+                int newMax = routes.stream().mapToInt(VRPRoute::length).max().orElse(Integer.MAX_VALUE);
                 if (newMax < bestMax) {
                     bestMax = newMax;
-                    bestWays = new HashMap<>(ways);
+                    bestRoutes = copyRoutes(routes);
                 }
 
                 tabuList.put(bestMove.key, iteration + tabuTenure);
                 moved = true;
             }
 
-            int finalIteration = iteration;
-            tabuList.entrySet().removeIf(e -> e.getValue() <= finalIteration);
+            tabuList.expire(iteration);
             if (!moved) break;
             iteration++;
         }
 
-        ways.clear();
-        ways.putAll(bestWays);
+        return bestRoutes;
     }
 
-    private record Move(int fromId, int toId, int node, int fromPos, int toPos, String key) {}
-
-
-    private static List<Integer> improveRoute(List<Integer> route, int[][] dist) {
-        RouteWithLength rwl = new RouteWithLength(route, dist);
-        int iter = 0;
-
-        while (iter++ < MAX_OPT_ITER) {
-            boolean improved = false;
-
-            RouteWithLength afterRelocate = relocate(rwl, dist);
-            if (afterRelocate.length < rwl.length) {
-                rwl = afterRelocate;
-                improved = true;
-            }
-
-            RouteWithLength afterTwoOpt = twoOpt(rwl, dist);
-            if (afterTwoOpt.length < rwl.length) {
-                rwl = afterTwoOpt;
-                improved = true;
-            }
-
-            if (!improved) break;
-        }
-
-        return rwl.route;
-    }
-
-    private static boolean moveBlockBetweenRoutes(Map<Integer, List<Integer>> ways, int[][] dist, int maxBlockSize) {
-        List<Integer> keys = new ArrayList<>(ways.keySet());
-
-        for (int i = 0; i < keys.size(); i++) {
-            for (int j = 0; j < keys.size(); j++) {
-                if (i == j) continue;
-                List<Integer> from = new ArrayList<>(ways.get(keys.get(i)));
-                List<Integer> to = new ArrayList<>(ways.get(keys.get(j)));
-
-                for (int size = 2; size <= maxBlockSize; size++) {
-                    for (int start = 1; start < from.size() - 1 - (size - 1); start++) {
-                        List<Integer> block = from.subList(start, start + size);
-                        for (int insert = 1; insert < to.size(); insert++) {
-                            List<Integer> newFrom = new ArrayList<>(from);
-                            List<Integer> newTo = new ArrayList<>(to);
-
-                            newFrom.subList(start, start + size).clear();
-                            newTo.addAll(insert, new ArrayList<>(block));
-
-                            int maxBefore = Math.max(calculateRouteLength(from, dist), calculateRouteLength(to, dist));
-                            int maxAfter = Math.max(calculateRouteLength(newFrom, dist), calculateRouteLength(newTo, dist));
-
-                            if (maxAfter < maxBefore) {
-                                ways.put(keys.get(i), improveRoute(newFrom, dist));
-                                ways.put(keys.get(j), improveRoute(newTo, dist));
-                                return true;
-                            }
-                        }
-                    }
+    private static Move findTabuMove(List<VRPRoute> routes, int i, int j, TabuMemory tabuList, int bestMax) {
+        if (i == j) return null;
+        VRPRoute from = routes.get(i);
+        VRPRoute to = routes.get(j);
+        int currentMax = Math.max(from.length(), to.length());
+        TABU_EVALUATED.add((long) (from.size() - 2) * (to.size() - 1));
+        int bestDelta = Integer.MAX_VALUE;
+        Move bestMove = null;
+
+        for (int pos = 1; pos < from.size() - 1; pos++) {
+            int node = from.get(pos);
+            int newFrom = from.length() + from.removeDelta(pos);
+            for (int insert = 1; insert < to.size(); insert++) {
+                int newMax = Math.max(newFrom, to.length() + to.insertDelta(insert, node));
+                int delta = newMax - currentMax;
+                if (delta >= bestDelta) continue;
+
+                long moveKey = (long) (i * routes.size() + j) << 32 | node;
+
+                if (!tabuList.contains(moveKey) || newMax < bestMax) {
+                    bestDelta = delta;
+                    bestMove = new Move(i, j, node, pos, insert, delta, moveKey);
                 }
             }
         }
-        return false;
+        return bestMove;
     }
 
-
-    private static int calculateRouteLength(List<Integer> route, int[][] dist) {
-        int sum = 0;
-        for (int i = 0; i < route.size() - 1; i++) {
-            sum += dist[route.get(i)][route.get(i + 1)];
+    private static List<VRPRoute> copyRoutes(List<VRPRoute> routes) {
+        List<VRPRoute> copy = new ArrayList<>(routes.size());
+        for (VRPRoute route : routes) {
+            copy.add(route.copy());
         }
-        return sum;
+        return copy;
     }
 
+    private record Move(int fromId, int toId, int node, int fromPos, int toPos, int delta, long key) {}
 
-    private static RouteWithLength twoOpt(RouteWithLength rwl, int[][] dist) {
-        boolean improvement = true;
-        int size = rwl.route.size();
-
-        while (improvement) {
-            improvement = false;
-            for (int i = 1; i < size - 2; i++) {
-                for (int j = i + 1; j < size - 1; j++) {
-                    int delta = dist[rwl.route.get(i - 1)][rwl.route.get(j)] +
-                            dist[rwl.route.get(i)][rwl.route.get(j + 1)] -
-                            dist[rwl.route.get(i - 1)][rwl.route.get(i)] -
-                            dist[rwl.route.get(j)][rwl.route.get(j + 1)];
 
-                    if (delta < 0) {
-                        Collections.reverse(rwl.route.subList(i, j + 1));
-                        rwl.length += delta;
-                        improvement = true;
-                    }
-                }
-            }
-        }
-        return rwl;
+    private static boolean moveBlockBetweenRoutes(List<VRPRoute> routes, int maxBlockSize, RouteOptimizer optimizer,
+                                                  boolean parallel) {
+        int m = routes.size();
+        BlockMove move = routePairs(m, parallel)
+                .mapToObj(p -> findBlockMove(routes, p / m, p % m, maxBlockSize))
+                .filter(Objects::nonNull)
+                .findFirst()
+                .orElse(null);
+        if (move == null) return false;
+
+        VRPRoute from = routes.get(move.fromId);
+        VRPRoute to = routes.get(move.toId);
+        to.insertBlock(move.insert, from.removeBlock(move.start, move.size));
+        MOVES.increment();
+        optimizer.optimize(from, move.start - 1, move.start);
+        optimizer.optimize(to, move.insert, move.insert + move.size - 1);
+        return true;
     }
 
-    private static RouteWithLength relocate(RouteWithLength rwl, int[][] dist) {
-        boolean improved = true;
-        while (improved) {
-            improved = false;
-            for (int i = 1; i < rwl.route.size() - 1; i++) {
-                int node = rwl.route.get(i);
-                for (int j = 1; j < rwl.route.size(); j++) {
-                    if (j == i || j == i + 1) continue;
-                    List<Integer> newRoute = new ArrayList<>(rwl.route);
-                    newRoute.remove(i);
-                    newRoute.add(j < i ? j : j - 1, node);
-
-                    int newLen = calculateRouteLength(newRoute, dist);
-                    if (newLen < rwl.length) {
-                        rwl.updateRoute(newRoute, dist);
-                        improved = true;
-                        break;
+    private static BlockMove findBlockMove(List<VRPRoute> routes, int i, int j, int maxBlockSize) {
+        if (i == j) return null;
+        VRPRoute from = routes.get(i);
+        VRPRoute to = routes.get(j);
+        int maxBefore = Math.max(from.length(), to.length());
+
+        for (int size = 2; size <= maxBlockSize; size++) {
+            for (int start = 1; start < from.size() - 1 - (size - 1); start++) {
+                int newFrom = from.length() + from.removeBlockDelta(start, size);
+                for (int insert = 1; insert < to.size(); insert++) {
+                    int maxAfter = Math.max(newFrom, to.length() + to.insertBlockDelta(insert, from, start, size));
+                    if (maxAfter < maxBefore) {
+                        return new BlockMove(i, j, start, size, insert);
                     }
                 }
-                if (improved) break;
             }
         }
-        return rwl;
+        return null;
     }
 
-    @Getter
-    public static class Pair<K, V> {
-        public final K key;
-        public final V value;
-
-        public Pair(K key, V value) {
-            this.key = key;
-            this.value = value;
-        }
-    }
-
-    private static class RouteWithLength {
-        List<Integer> route;
-        int length;
-
-        RouteWithLength(List<Integer> route, int[][] dist) {
-            this.route = route;
-            this.length = calculateRouteLength(route, dist);
-        }
-
-        void updateRoute(List<Integer> newRoute, int[][] dist) {
-            this.route = newRoute;
-            this.length = calculateRouteLength(newRoute, dist);
-        }
-    }
-}
\ No newline at end of file
+    private record BlockMove(int fromId, int toId, int start, int size, int insert) {}
+}
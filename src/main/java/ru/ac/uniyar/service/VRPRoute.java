@@ -0,0 +1,167 @@
+package ru.ac.uniyar.service;
+
+import ru.ac.uniyar.utils.distance.DistanceMatrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class VRPRoute {
+    private final DistanceMatrix dist;
+    private final int[] position;
+    private int[] nodes;
+    private int[] prefix;
+    private int size;
+
+    public VRPRoute(List<Integer> route, DistanceMatrix dist) {
+        this.dist = dist;
+        this.position = new int[dist.size() + 1];
+        this.size = route.size();
+        this.nodes = new int[Math.max(size + 1, 8)];
+        this.prefix = new int[nodes.length];
+        for (int i = 0; i < size; ++i) {
+            nodes[i] = route.get(i);
+        }
+        refresh(0);
+    }
+
+    private VRPRoute(VRPRoute other) {
+        this.dist = other.dist;
+        this.position = Arrays.copyOf(other.position, other.position.length);
+        this.nodes = Arrays.copyOf(other.nodes, other.nodes.length);
+        this.prefix = Arrays.copyOf(other.prefix, other.prefix.length);
+        this.size = other.size;
+    }
+
+    public VRPRoute copy() {
+        return new VRPRoute(this);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int get(int i) {
+        return nodes[i];
+    }
+
+    public int positionOf(int v) {
+        return position[v];
+    }
+
+    public boolean contains(int v) {
+        int p = position[v];
+        return p < size && nodes[p] == v;
+    }
+
+    public int length() {
+        return size == 0 ? 0 : prefix[size - 1];
+    }
+
+    public int segmentLength(int from, int to) {
+        return prefix[to] - prefix[from];
+    }
+
+    public int removeDelta(int i) {
+        return dist.get(nodes[i - 1], nodes[i + 1]) - dist.get(nodes[i - 1], nodes[i]) - dist.get(nodes[i], nodes[i + 1]);
+    }
+
+    public int insertDelta(int i, int node) {
+        return dist.get(nodes[i - 1], node) + dist.get(node, nodes[i]) - dist.get(nodes[i - 1], nodes[i]);
+    }
+
+    public int replaceDelta(int i, int node) {
+        return dist.get(nodes[i - 1], node) + dist.get(node, nodes[i + 1])
+                - dist.get(nodes[i - 1], nodes[i]) - dist.get(nodes[i], nodes[i + 1]);
+    }
+
+    public int removeBlockDelta(int start, int count) {
+        int end = start + count - 1;
+        return dist.get(nodes[start - 1], nodes[end + 1]) - dist.get(nodes[start - 1], nodes[start])
+                - dist.get(nodes[end], nodes[end + 1]) - segmentLength(start, end);
+    }
+
+    public int insertBlockDelta(int i, VRPRoute source, int start, int count) {
+        int first = source.nodes[start], last = source.nodes[start + count - 1];
+        return dist.get(nodes[i - 1], first) + source.segmentLength(start, start + count - 1)
+                + dist.get(last, nodes[i]) - dist.get(nodes[i - 1], nodes[i]);
+    }
+
+    public int reverseDelta(int i, int j) {
+        return dist.get(nodes[i - 1], nodes[j]) + dist.get(nodes[i], nodes[j + 1])
+                - dist.get(nodes[i - 1], nodes[i]) - dist.get(nodes[j], nodes[j + 1]);
+    }
+
+    public int remove(int i) {
+        int node = nodes[i];
+        System.arraycopy(nodes, i + 1, nodes, i, size - i - 1);
+        --size;
+        refresh(i);
+        return node;
+    }
+
+    public void insert(int i, int node) {
+        ensureCapacity(size + 1);
+        System.arraycopy(nodes, i, nodes, i + 1, size - i);
+        nodes[i] = node;
+        ++size;
+        refresh(i);
+    }
+
+    public void set(int i, int node) {
+        nodes[i] = node;
+        refresh(i);
+    }
+
+    public int[] removeBlock(int start, int count) {
+        int[] block = Arrays.copyOfRange(nodes, start, start + count);
+        System.arraycopy(nodes, start + count, nodes, start, size - start - count);
+        size -= count;
+        refresh(start);
+        return block;
+    }
+
+    public void insertBlock(int i, int[] block) {
+        ensureCapacity(size + block.length);
+        System.arraycopy(nodes, i, nodes, i + block.length, size - i);
+        System.arraycopy(block, 0, nodes, i, block.length);
+        size += block.length;
+        refresh(i);
+    }
+
+    public void reverse(int i, int j) {
+        for (int a = i, b = j; a < b; ++a, --b) {
+            int temp = nodes[a];
+            nodes[a] = nodes[b];
+            nodes[b] = temp;
+        }
+        refresh(i);
+    }
+
+    public List<Integer> toList() {
+        List<Integer> route = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            route.add(nodes[i]);
+        }
+        return route;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= nodes.length) return;
+        int grown = Math.max(capacity, nodes.length + (nodes.length >> 1));
+        nodes = Arrays.copyOf(nodes, grown);
+        prefix = Arrays.copyOf(prefix, grown);
+    }
+
+    private void refresh(int from) {
+        int start = Math.max(from, 1);
+        if (size > 0) prefix[0] = 0;
+        for (int i = start; i < size; ++i) {
+            prefix[i] = prefix[i - 1] + dist.get(nodes[i - 1], nodes[i]);
+        }
+        for (int i = from; i < size; ++i) {
+            position[nodes[i]] = i;
+        }
+        if (size > 0) position[nodes[0]] = 0;
+    }
+}
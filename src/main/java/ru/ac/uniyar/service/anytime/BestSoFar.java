@@ -0,0 +1,26 @@
+package ru.ac.uniyar.service.anytime;
+
+import java.util.Comparator;
+import java.util.function.Consumer;
+
+public class BestSoFar<R> {
+    private final Comparator<R> comparator;
+    private final Consumer<R> onImprovement;
+    private R best;
+
+    public BestSoFar(Comparator<R> comparator, Consumer<R> onImprovement) {
+        this.comparator = comparator;
+        this.onImprovement = onImprovement;
+    }
+
+    public synchronized boolean offer(R candidate) {
+        if (candidate == null || (best != null && comparator.compare(candidate, best) >= 0)) return false;
+        best = candidate;
+        onImprovement.accept(candidate);
+        return true;
+    }
+
+    public synchronized R get() {
+        return best;
+    }
+}
@@ -0,0 +1,93 @@
+package ru.ac.uniyar.service.anytime;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Budget {
+    private static final int MAX_BATCH = 1024;
+    private static final long FLUSH_INTERVAL = 1_000_000;
+
+    private final long deadline;
+    private final long maxIterations;
+    private final CancellationToken token;
+    private final AtomicLong iterations = new AtomicLong();
+    private final ThreadLocal<Ticks> ticks = ThreadLocal.withInitial(Ticks::new);
+
+    private Budget(long deadline, long maxIterations, CancellationToken token) {
+        this.deadline = deadline;
+        this.maxIterations = maxIterations;
+        this.token = token;
+    }
+
+    public static Budget unlimited() {
+        return new Budget(Long.MAX_VALUE, Long.MAX_VALUE, new CancellationToken());
+    }
+
+    public static Budget ofTime(Duration duration) {
+        return unlimited().withTime(duration);
+    }
+
+    public static Budget ofIterations(long maxIterations) {
+        return unlimited().withIterations(maxIterations);
+    }
+
+    public Budget withTime(Duration duration) {
+        return new Budget(System.nanoTime() + duration.toNanos(), maxIterations, token);
+    }
+
+    public Budget withIterations(long maxIterations) {
+        return new Budget(deadline, maxIterations, token);
+    }
+
+    public Budget withToken(CancellationToken token) {
+        return new Budget(deadline, maxIterations, token);
+    }
+
+    public CancellationToken getToken() {
+        return token;
+    }
+
+    public long getIterations() {
+        return iterations.get();
+    }
+
+    public boolean isExhausted() {
+        return token.isCancelled()
+                || iterations.get() >= maxIterations
+                || (deadline != Long.MAX_VALUE && System.nanoTime() - deadline >= 0);
+    }
+
+    public boolean tick() {
+        Ticks local = ticks.get();
+        if (local.exhausted || token.isCancelled()) return false;
+        if (++local.pending < local.batch) return true;
+
+        long now = System.nanoTime();
+        long total = iterations.addAndGet(local.pending);
+        local.pending = 0;
+        if (now - local.flushedAt < FLUSH_INTERVAL) {
+            local.batch = Math.min(2 * local.batch, MAX_BATCH);
+        } else {
+            local.batch = Math.max(local.batch / 2, 1);
+        }
+        local.flushedAt = now;
+        local.exhausted = total > maxIterations || (deadline != Long.MAX_VALUE && now - deadline >= 0);
+        return !local.exhausted;
+    }
+
+    /**
+     * Adds the calling thread's batched ticks to {@link #getIterations()}. Workers call it when they finish.
+     */
+    public void flush() {
+        Ticks local = ticks.get();
+        iterations.addAndGet(local.pending);
+        ticks.remove();
+    }
+
+    private static class Ticks {
+        private int pending;
+        private int batch = 1;
+        private long flushedAt = System.nanoTime();
+        private boolean exhausted;
+    }
+}
@@ -0,0 +1,13 @@
+package ru.ac.uniyar.service.anytime;
+
+public class CancellationToken {
+    private volatile boolean cancelled;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
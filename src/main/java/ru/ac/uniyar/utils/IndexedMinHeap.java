@@ -0,0 +1,122 @@
+package ru.ac.uniyar.utils;
+
+import java.util.Arrays;
+
+public class IndexedMinHeap {
+    private final int[] heap;
+    private final int[] position;
+    private final int[] keys;
+    private int size;
+
+    public IndexedMinHeap(int maxIndex) {
+        this.heap = new int[maxIndex + 1];
+        this.position = new int[maxIndex + 1];
+        this.keys = new int[maxIndex + 1];
+        Arrays.fill(position, -1);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int index) {
+        return position[index] >= 0;
+    }
+
+    public int key(int index) {
+        return keys[index];
+    }
+
+    public int peek() {
+        return heap[0];
+    }
+
+    public int poll() {
+        int top = heap[0];
+        position[top] = -1;
+        --size;
+        if (size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    public void remove(int index) {
+        int i = position[index];
+        position[index] = -1;
+        --size;
+        if (i < size) {
+            int moved = heap[size];
+            heap[i] = moved;
+            position[moved] = i;
+            siftDown(i);
+            siftUp(position[moved]);
+        }
+    }
+
+    public void push(int index, int key) {
+        if (contains(index)) {
+            update(index, key);
+            return;
+        }
+        keys[index] = key;
+        heap[size] = index;
+        position[index] = size;
+        siftUp(size++);
+    }
+
+    public void update(int index, int key) {
+        int old = keys[index];
+        keys[index] = key;
+        if (key < old) {
+            siftUp(position[index]);
+        } else if (key > old) {
+            siftDown(position[index]);
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; ++i) {
+            position[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private boolean less(int a, int b) {
+        return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+    }
+
+    private void siftUp(int i) {
+        int item = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!less(item, heap[parent])) break;
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = item;
+        position[item] = i;
+    }
+
+    private void siftDown(int i) {
+        int item = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && less(heap[child + 1], heap[child])) ++child;
+            if (!less(heap[child], item)) break;
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = item;
+        position[item] = i;
+    }
+}
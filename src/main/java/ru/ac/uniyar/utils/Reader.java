@@ -1,39 +1,129 @@
 package ru.ac.uniyar.utils;
 
+import ru.ac.uniyar.model.results.C4C3FreeResult;
 import ru.ac.uniyar.model.results.LCMSTResult;
+import ru.ac.uniyar.model.results.VRPResult;
 import ru.ac.uniyar.model.Task;
 import ru.ac.uniyar.model.Edge;
-import ru.ac.uniyar.model.Vertex;
 
 import java.io.BufferedReader;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 
 public class Reader {
+    private static final String CACHE_SUFFIX = ".bin";
+    private static final int CACHE_MAGIC = 0x54415832;
+
     public static Task readTask(String path) {
-        Task task = new Task();
-        task.setVertexes(new HashMap<>());
+        Path source = Path.of(path);
+        Path cache = Path.of(path + CACHE_SUFFIX);
         try {
-            BufferedReader reader = new BufferedReader(new FileReader(path));
-            String line = reader.readLine();
-            task.setSize(Integer.parseInt(line.substring(4)));
-            line = reader.readLine();
-            int numberCounter = 1;
+            Task task = null;
+            if (Files.exists(cache) && Files.getLastModifiedTime(cache).compareTo(Files.getLastModifiedTime(source)) >= 0) {
+                task = readTaskCache(cache);
+            }
+            if (task != null) return task;
 
-            while (line != null) {
-                String[] position = line.split("\t");
-                Vertex vertex = new Vertex(Integer.parseInt(position[0]), Integer.parseInt(position[1]), numberCounter);
-                task.getVertexes().put(numberCounter, vertex);
-                line = reader.readLine();
-                ++numberCounter;
+            task = parseTask(source);
+            writeTaskCache(task, cache);
+            return task;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read task " + path, e);
+        }
+    }
+
+    private static Task parseTask(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (bytes.hasRemaining() && !isNumberStart(bytes.get(bytes.position()))) {
+                bytes.get();
             }
 
-            reader.close();
-        } catch (Exception e) {
-            e.printStackTrace();
+            int n = nextInt(bytes, path);
+            int[] xs = new int[n + 1];
+            int[] ys = new int[n + 1];
+            for (int v = 1; v <= n; ++v) {
+                xs[v] = nextInt(bytes, path);
+                ys[v] = nextInt(bytes, path);
+            }
+            return new Task(xs, ys);
+        }
+    }
+
+    private static int nextInt(ByteBuffer bytes, Path path) {
+        while (bytes.hasRemaining() && Character.isWhitespace(bytes.get(bytes.position()))) {
+            bytes.get();
+        }
+        if (!bytes.hasRemaining()) {
+            throw new IllegalArgumentException("Unexpected end of " + path);
+        }
+
+        boolean negative = bytes.get(bytes.position()) == '-';
+        if (negative) bytes.get();
+        int digits = 0;
+        long value = 0;
+        while (bytes.hasRemaining() && Character.isDigit(bytes.get(bytes.position()))) {
+            value = value * 10 + (bytes.get() - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Number out of range at byte " + bytes.position() + " of " + path);
+            }
+            ++digits;
+        }
+        if (digits == 0) {
+            throw new IllegalArgumentException("Expected a number at byte " + bytes.position() + " of " + path);
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    private static boolean isNumberStart(byte b) {
+        return b == '-' || Character.isDigit(b);
+    }
+
+    /**
+     * The returned task reads its coordinates straight from the mapping, which stays valid after the channel closes.
+     */
+    private static Task readTaskCache(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            if (ints.limit() < 2 || ints.get(0) != CACHE_MAGIC) return null;
+            int n = ints.get(1);
+            if (n < 0 || ints.limit() != 2 + 2L * (n + 1)) return null;
+            return new Task(ints.slice(2, n + 1), ints.slice(n + 3, n + 1));
+        }
+    }
+
+    private static void writeTaskCache(Task task, Path path) {
+        int n = task.getSize();
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * (2 + 2 * (n + 1))).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asIntBuffer().put(CACHE_MAGIC).put(n).put(task.getXs().slice(0, n + 1)).put(task.getYs().slice(0, n + 1));
+        Path temp = Path.of(path + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            return;
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The cache only speeds up later runs; an unwritable directory must not fail the load.
         }
-        return task;
     }
 
     public static LCMSTResult readLCMSTResult(String path) {
@@ -58,4 +148,58 @@ public class Reader {
         }
         return LCMSTResult;
     }
+
+    public static VRPResult readVRPResult(String path) {
+        VRPResult VRPResult = new VRPResult();
+        VRPResult.setWays(new HashMap<>());
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line = reader.readLine();
+            String[] position = line.split("\t");
+            VRPResult.setDepot(Integer.parseInt(position[3].substring(0, position[3].length() - 1)));
+            VRPResult.setMaxCycleWeight(Integer.parseInt(position[8].substring(0, position[8].length() - 1)));
+            VRPResult.setTotalWeight(Integer.parseInt(position[12]));
+            reader.readLine();
+            line = reader.readLine();
+            List<Integer> way = null;
+            while (line != null) {
+                position = line.split("\t");
+                int u = Integer.parseInt(position[1]), v = Integer.parseInt(position[2]);
+                if (way == null) {
+                    way = new ArrayList<>();
+                    way.add(u);
+                }
+                way.add(v);
+                if (v == VRPResult.getDepot()) {
+                    VRPResult.getWays().put(VRPResult.getWays().size() + 1, way);
+                    way = null;
+                }
+                line = reader.readLine();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+        return VRPResult;
+    }
+
+    public static C4C3FreeResult readC4C3FreeResult(String path) {
+        C4C3FreeResult C4C3FreeResult = new C4C3FreeResult();
+        C4C3FreeResult.setEdges(new ArrayList<>());
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line = reader.readLine();
+            String[] position = line.split("\t");
+            C4C3FreeResult.setWeight(Integer.parseInt(position[4].substring(0, position[4].length() - 1)));
+            reader.readLine();
+            line = reader.readLine();
+            while (line != null) {
+                position = line.split("\t");
+                C4C3FreeResult.getEdges().add(new Edge(Integer.parseInt(position[1]), Integer.parseInt(position[2]), 0));
+                line = reader.readLine();
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+        return C4C3FreeResult;
+    }
 }
@@ -0,0 +1,130 @@
+package ru.ac.uniyar.utils;
+
+import java.util.Arrays;
+
+public class TabuMemory {
+    private static final long EMPTY = -1;
+
+    private long[] keys;
+    private int[] expiries;
+    private int mask;
+    private int size;
+
+    private long[] queuedKeys;
+    private int[] queuedExpiries;
+    private int head;
+    private int queued;
+
+    public TabuMemory() {
+        this(16);
+    }
+
+    public TabuMemory(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, 2 * expectedSize) - 1) << 1;
+        this.keys = new long[capacity];
+        this.expiries = new int[capacity];
+        this.mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+        this.queuedKeys = new long[capacity];
+        this.queuedExpiries = new int[capacity];
+    }
+
+    public boolean contains(long move) {
+        return keys[find(move)] == move;
+    }
+
+    public int expiresAt(long move) {
+        int slot = find(move);
+        return keys[slot] == move ? expiries[slot] : 0;
+    }
+
+    public void put(long move, int expiresAt) {
+        int slot = find(move);
+        if (keys[slot] != move) {
+            keys[slot] = move;
+            if (++size > keys.length / 2) {
+                rehash(2 * keys.length);
+                slot = find(move);
+            }
+        }
+        expiries[slot] = expiresAt;
+        enqueue(move, expiresAt);
+    }
+
+    public void expire(int iteration) {
+        while (queued > 0 && queuedExpiries[head] <= iteration) {
+            long move = queuedKeys[head];
+            int slot = find(move);
+            if (keys[slot] == move && expiries[slot] == queuedExpiries[head]) {
+                delete(slot);
+            }
+            head = (head + 1) & (queuedKeys.length - 1);
+            --queued;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int find(long move) {
+        int slot = hash(move) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != move) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void delete(int slot) {
+        --size;
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                expiries[gap] = expiries[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldExpiries = expiries;
+        keys = new long[capacity];
+        expiries = new int[capacity];
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = find(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            expiries[slot] = oldExpiries[i];
+        }
+    }
+
+    private void enqueue(long move, int expiresAt) {
+        if (queued == queuedKeys.length) {
+            long[] grownKeys = new long[2 * queued];
+            int[] grownExpiries = new int[2 * queued];
+            for (int i = 0; i < queued; ++i) {
+                int from = (head + i) & (queuedKeys.length - 1);
+                grownKeys[i] = queuedKeys[from];
+                grownExpiries[i] = queuedExpiries[from];
+            }
+            queuedKeys = grownKeys;
+            queuedExpiries = grownExpiries;
+            head = 0;
+        }
+        int tail = (head + queued) & (queuedKeys.length - 1);
+        queuedKeys[tail] = move;
+        queuedExpiries[tail] = expiresAt;
+        ++queued;
+    }
+
+    private static int hash(long move) {
+        long h = move * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
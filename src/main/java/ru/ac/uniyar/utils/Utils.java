@@ -2,8 +2,21 @@ package ru.ac.uniyar.utils;
 
 import ru.ac.uniyar.model.Vertex;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
 public class Utils {
     public static int getDistance(Vertex vertex1, Vertex vertex2) {
         return Math.abs(vertex1.getX() - vertex2.getX()) + Math.abs(vertex1.getY() - vertex2.getY());
     }
+
+    /**
+     * How many long-running workers the executor can run at once, so that none of them queue behind the others.
+     */
+    public static int parallelism(ExecutorService executor) {
+        if (executor instanceof ForkJoinPool pool) return pool.getParallelism();
+        if (executor instanceof ThreadPoolExecutor pool) return pool.getMaximumPoolSize();
+        return Runtime.getRuntime().availableProcessors();
+    }
 }
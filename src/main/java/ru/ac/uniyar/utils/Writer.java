@@ -3,53 +3,30 @@ package ru.ac.uniyar.utils;
 import ru.ac.uniyar.model.Task;
 import ru.ac.uniyar.model.results.C4C3FreeResult;
 import ru.ac.uniyar.model.results.LCMSTResult;
-import ru.ac.uniyar.model.Edge;
 import ru.ac.uniyar.model.results.VRPResult;
+import ru.ac.uniyar.utils.sink.ByteEncoder;
+import ru.ac.uniyar.utils.sink.ResultEncoder;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
-import java.util.List;
+import java.nio.file.Path;
 
 public class Writer {
     public static void writeLCMSTResult(LCMSTResult result, String path) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path))) {
-            writer.write(String.format("c\tВес\tдерева\t=\t%s,\tчисло\tлистьев\t=\t%s,\n", result.getWeight(), result.getLeaves()));
-            writer.write(String.format("p\tedge\t%s\t%s\n", result.getEdges().size() + 1, result.getEdges().size()));
-            for (Edge edge : result.getEdges()) {
-                writer.write(String.format("e\t%s\t%s\n", edge.getVertex1(), edge.getVertex2()));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        write(ResultEncoder.lcmst(), result, path);
     }
 
     public static void writeVRPResult(VRPResult result, String path, Task task) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path))) {
-            int amountOfEdges = 0;
-            for (List<Integer> way : result.getWays().values()) {
-                amountOfEdges += way.size() - 1;
-            }
-            writer.write(String.format("c\tДепо\t=\t%s,\tсамый\tдлинный\tцикл\t=\t%s,\tсуммарная\tдлина\t=\t%s\n", result.getDepot(), result.getMaxCycleWeight(), result.getTotalWeight()));
-            writer.write(String.format("p\tedge\t%s\t%s\n", task.getSize(), amountOfEdges));
-            for (List<Integer> way: result.getWays().values()) {
-                for (int i = 0; i < way.size() - 1; ++i) {
-                    int u = way.get(i);
-                    int v = way.get(i + 1);
-                    writer.write(String.format("e\t%s\t%s\n", u, v));
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        write(ResultEncoder.vrp(task.getSize()), result, path);
     }
 
     public static void writeBiggestSubGraphResult(C4C3FreeResult result, String path, Task task) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(path))) {
-            writer.write(String.format("c\tВес\tподграфа\t=\t%s,\tчисло\tребер\t=\t%s,\n", result.getWeight(), result.getEdges().size()));
-            writer.write(String.format("p\tedge\t%s\t%s\n", task.getSize(), result.getEdges().size()));
-            for (Edge edge : result.getEdges()) {
-                writer.write(String.format("e\t%s\t%s\n", edge.getVertex1(), edge.getVertex2()));
-            }
+        write(ResultEncoder.c4c3Free(task.getSize()), result, path);
+    }
+
+    private static <R> void write(ResultEncoder<R> encoder, R result, String path) {
+        ByteEncoder bytes = new ByteEncoder();
+        encoder.encode(result, bytes);
+        try {
+            bytes.writeTo(Path.of(path));
         } catch (Exception e) {
             e.printStackTrace();
         }
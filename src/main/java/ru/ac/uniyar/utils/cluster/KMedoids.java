@@ -0,0 +1,172 @@
+package ru.ac.uniyar.utils.cluster;
+
+import ru.ac.uniyar.utils.distance.DistanceMatrix;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+public class KMedoids {
+    private static final int STOP_CHECK_MASK = 63;
+
+    private final DistanceMatrix dist;
+    private final int[] points;
+    private final int k;
+    private final int[] medoids;
+    private final boolean[] isMedoid;
+    private final int[] nearest;
+    private final int[] second;
+    private final int[] nearestDist;
+    private final int[] secondDist;
+    private final long[] removalLoss;
+    private final long[] delta;
+    private int chosen;
+
+    public KMedoids(List<Integer> vertices, int k, DistanceMatrix dist) {
+        this.dist = dist;
+        this.points = vertices.stream().mapToInt(Integer::intValue).toArray();
+        this.k = Math.min(k, points.length);
+        this.medoids = new int[this.k];
+        this.isMedoid = new boolean[points.length];
+        this.nearest = new int[points.length];
+        this.second = new int[points.length];
+        this.nearestDist = new int[points.length];
+        this.secondDist = new int[points.length];
+        this.removalLoss = new long[this.k];
+        this.delta = new long[this.k];
+    }
+
+    public void seed(Random random) {
+        chosen = 0;
+        Arrays.fill(isMedoid, false);
+        Arrays.fill(nearest, -1);
+        Arrays.fill(second, -1);
+        Arrays.fill(nearestDist, Integer.MAX_VALUE);
+        Arrays.fill(secondDist, Integer.MAX_VALUE);
+        if (k == 0) return;
+
+        addMedoid(random.nextInt(points.length));
+        while (chosen < k) {
+            long total = 0;
+            for (int d : nearestDist) total += d;
+
+            int next = -1;
+            if (total > 0) {
+                long r = (long) (random.nextDouble() * total);
+                long cumulative = 0;
+                for (int o = 0; o < points.length && next < 0; ++o) {
+                    cumulative += nearestDist[o];
+                    if (cumulative > r) next = o;
+                }
+            }
+            for (int o = 0; o < points.length && (next < 0 || isMedoid[next]); ++o) {
+                next = o;
+            }
+            addMedoid(next);
+        }
+    }
+
+    public void swap(int maxPasses, BooleanSupplier stop) {
+        if (k < 2 || k == points.length) return;
+        computeRemovalLoss();
+
+        for (int pass = 0; pass < maxPasses; ++pass) {
+            boolean swapped = false;
+            for (int c = 0; c < points.length; ++c) {
+                if (isMedoid[c]) continue;
+                if ((c & STOP_CHECK_MASK) == 0 && stop.getAsBoolean()) return;
+
+                System.arraycopy(removalLoss, 0, delta, 0, k);
+                long added = 0;
+                for (int o = 0; o < points.length; ++o) {
+                    int d = dist.get(points[o], points[c]);
+                    if (d < nearestDist[o]) {
+                        added += d - nearestDist[o];
+                        delta[nearest[o]] += nearestDist[o] - secondDist[o];
+                    } else if (d < secondDist[o]) {
+                        delta[nearest[o]] += d - secondDist[o];
+                    }
+                }
+
+                int best = 0;
+                for (int i = 1; i < k; ++i) {
+                    if (delta[i] < delta[best]) best = i;
+                }
+                if (delta[best] + added < 0) {
+                    replaceMedoid(best, c);
+                    swapped = true;
+                }
+            }
+            if (!swapped) break;
+        }
+    }
+
+    public List<List<Integer>> clusters() {
+        List<List<Integer>> clusters = emptyClusters();
+        for (int o = 0; o < points.length; ++o) {
+            clusters.get(nearest[o]).add(points[o]);
+        }
+        return clusters;
+    }
+
+    public int[] getMedoids() {
+        int[] result = new int[chosen];
+        for (int i = 0; i < chosen; ++i) result[i] = points[medoids[i]];
+        return result;
+    }
+
+    private List<List<Integer>> emptyClusters() {
+        List<List<Integer>> clusters = new ArrayList<>(k);
+        for (int i = 0; i < k; ++i) clusters.add(new ArrayList<>());
+        return clusters;
+    }
+
+    private void addMedoid(int c) {
+        int i = chosen++;
+        medoids[i] = c;
+        isMedoid[c] = true;
+        for (int o = 0; o < points.length; ++o) {
+            offer(o, i, dist.get(points[o], points[c]));
+        }
+    }
+
+    private void replaceMedoid(int i, int c) {
+        isMedoid[medoids[i]] = false;
+        medoids[i] = c;
+        isMedoid[c] = true;
+
+        for (int o = 0; o < points.length; ++o) {
+            if (nearest[o] == i || second[o] == i) {
+                nearestDist[o] = secondDist[o] = Integer.MAX_VALUE;
+                nearest[o] = second[o] = -1;
+                for (int j = 0; j < k; ++j) {
+                    offer(o, j, dist.get(points[o], points[medoids[j]]));
+                }
+            } else {
+                offer(o, i, dist.get(points[o], points[c]));
+            }
+        }
+        computeRemovalLoss();
+    }
+
+    private void offer(int o, int i, int d) {
+        if (d < nearestDist[o]) {
+            second[o] = nearest[o];
+            secondDist[o] = nearestDist[o];
+            nearest[o] = i;
+            nearestDist[o] = d;
+        } else if (d < secondDist[o]) {
+            second[o] = i;
+            secondDist[o] = d;
+        }
+    }
+
+    private void computeRemovalLoss() {
+        Arrays.fill(removalLoss, 0);
+        for (int o = 0; o < points.length; ++o) {
+            removalLoss[nearest[o]] += secondDist[o] - nearestDist[o];
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package ru.ac.uniyar.utils.distance;
+
+public enum DistanceBackend {
+    PACKED,
+    MANHATTAN,
+    // MAPPED is never chosen by forSize: recomputing Manhattan distances is cheaper than paging them in,
+    // so the mapped backend is only built when requested explicitly.
+    MAPPED;
+
+    private static final int MAX_PACKED_SIZE = 8192;
+
+    public static DistanceBackend forSize(int n) {
+        return n <= MAX_PACKED_SIZE ? PACKED : MANHATTAN;
+    }
+}
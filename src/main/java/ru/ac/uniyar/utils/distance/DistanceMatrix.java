@@ -0,0 +1,26 @@
+package ru.ac.uniyar.utils.distance;
+
+import ru.ac.uniyar.model.Task;
+
+public interface DistanceMatrix extends AutoCloseable {
+    int size();
+
+    int get(int i, int j);
+
+    @Override
+    default void close() {
+    }
+
+    static DistanceMatrix of(Task task) {
+        return of(task, DistanceBackend.forSize(task.getSize()));
+    }
+
+    static DistanceMatrix of(Task task, DistanceBackend backend) {
+        ManhattanDistanceMatrix coordinates = new ManhattanDistanceMatrix(task);
+        return switch (backend) {
+            case PACKED -> new PackedDistanceMatrix(coordinates);
+            case MANHATTAN -> coordinates;
+            case MAPPED -> new MappedDistanceMatrix(coordinates);
+        };
+    }
+}
@@ -0,0 +1,39 @@
+package ru.ac.uniyar.utils.distance;
+
+import ru.ac.uniyar.model.Task;
+
+public class ManhattanDistanceMatrix implements DistanceMatrix {
+    private final int n;
+    private final int[] xs;
+    private final int[] ys;
+
+    public ManhattanDistanceMatrix(Task task) {
+        this.n = task.getSize();
+        // Copied out of the task's buffers: get() is the innermost call of every resolver.
+        this.xs = new int[n + 1];
+        this.ys = new int[n + 1];
+        task.getXs().get(0, xs);
+        task.getYs().get(0, ys);
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public int get(int i, int j) {
+        return Math.abs(xs[i] - xs[j]) + Math.abs(ys[i] - ys[j]);
+    }
+
+    public int maxDistance() {
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE, minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+        for (int i = 1; i <= n; ++i) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        return n == 0 ? 0 : (maxX - minX) + (maxY - minY);
+    }
+}
@@ -0,0 +1,74 @@
+package ru.ac.uniyar.utils.distance;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class MappedDistanceMatrix implements DistanceMatrix {
+    private static final int CHUNK_SHIFT = 28;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final int n;
+    private final Path file;
+    private final MappedByteBuffer[] chunks;
+
+    public MappedDistanceMatrix(ManhattanDistanceMatrix coordinates) {
+        this.n = coordinates.size();
+        long length = (long) n * (n - 1) / 2;
+        int chunkCount = (int) ((length + CHUNK_MASK) >>> CHUNK_SHIFT);
+        this.chunks = new MappedByteBuffer[Math.max(chunkCount, 1)];
+
+        try {
+            this.file = Files.createTempFile("distances", ".bin");
+            file.toFile().deleteOnExit();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                for (int c = 0; c < chunks.length; ++c) {
+                    long from = (long) c << CHUNK_SHIFT;
+                    long entries = Math.min(CHUNK_MASK + 1, length - from);
+                    chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, from * Integer.BYTES, Math.max(entries, 0) * Integer.BYTES);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long index = 0;
+        for (int i = 1; i <= n; ++i) {
+            for (int j = i + 1; j <= n; ++j) {
+                chunks[(int) (index >>> CHUNK_SHIFT)].putInt((int) (index & CHUNK_MASK) * Integer.BYTES, coordinates.get(i, j));
+                ++index;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public int get(int i, int j) {
+        if (i == j) return 0;
+        if (i > j) {
+            int temp = i;
+            i = j;
+            j = temp;
+        }
+        long row = i - 1;
+        long index = row * (2L * n - row - 1) / 2 + (j - i - 1);
+        return chunks[(int) (index >>> CHUNK_SHIFT)].getInt((int) (index & CHUNK_MASK) * Integer.BYTES);
+    }
+
+    @Override
+    public void close() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
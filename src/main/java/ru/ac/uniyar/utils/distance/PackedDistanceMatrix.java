@@ -0,0 +1,53 @@
+package ru.ac.uniyar.utils.distance;
+
+public class PackedDistanceMatrix implements DistanceMatrix {
+    private final int n;
+    private final char[] narrow;
+    private final int[] wide;
+
+    public PackedDistanceMatrix(ManhattanDistanceMatrix coordinates) {
+        this.n = coordinates.size();
+        long length = (long) n * (n - 1) / 2;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many vertexes for packed distance matrix: " + n);
+        }
+
+        boolean fitsChar = coordinates.maxDistance() <= Character.MAX_VALUE;
+        this.narrow = fitsChar ? new char[(int) length] : null;
+        this.wide = fitsChar ? null : new int[(int) length];
+
+        int index = 0;
+        for (int i = 1; i <= n; ++i) {
+            for (int j = i + 1; j <= n; ++j) {
+                int distance = coordinates.get(i, j);
+                if (fitsChar) {
+                    narrow[index++] = (char) distance;
+                } else {
+                    wide[index++] = distance;
+                }
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return n;
+    }
+
+    @Override
+    public int get(int i, int j) {
+        if (i == j) return 0;
+        int index = index(n, i, j);
+        return narrow != null ? narrow[index] : wide[index];
+    }
+
+    public static int index(int n, int i, int j) {
+        if (i > j) {
+            int temp = i;
+            i = j;
+            j = temp;
+        }
+        long row = i - 1;
+        return (int) (row * (2L * n - row - 1) / 2 + (j - i - 1));
+    }
+}
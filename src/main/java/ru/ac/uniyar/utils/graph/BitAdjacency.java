@@ -0,0 +1,108 @@
+package ru.ac.uniyar.utils.graph;
+
+import java.util.Arrays;
+
+public class BitAdjacency {
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final int n;
+    private final int words;
+    private final long[] bits;
+    private final int[][] neighbours;
+    private final int[] degrees;
+    private int edgeCount;
+
+    public BitAdjacency(int n) {
+        this.n = n;
+        this.words = (n >>> 6) + 1;
+        this.bits = new long[(n + 1) * words];
+        this.neighbours = new int[n + 1][INITIAL_CAPACITY];
+        this.degrees = new int[n + 1];
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    public int degree(int v) {
+        return degrees[v];
+    }
+
+    public int neighbour(int v, int i) {
+        return neighbours[v][i];
+    }
+
+    public boolean hasEdge(int u, int v) {
+        return (bits[u * words + (v >>> 6)] & (1L << v)) != 0;
+    }
+
+    public void addEdge(int u, int v) {
+        if (hasEdge(u, v)) return;
+        bits[u * words + (v >>> 6)] |= 1L << v;
+        bits[v * words + (u >>> 6)] |= 1L << u;
+        append(u, v);
+        append(v, u);
+        ++edgeCount;
+    }
+
+    public void removeEdge(int u, int v) {
+        if (!hasEdge(u, v)) return;
+        bits[u * words + (v >>> 6)] &= ~(1L << v);
+        bits[v * words + (u >>> 6)] &= ~(1L << u);
+        detach(u, v);
+        detach(v, u);
+        --edgeCount;
+    }
+
+    public void clear() {
+        for (int v = 1; v <= n; ++v) {
+            int[] row = neighbours[v];
+            for (int i = 0; i < degrees[v]; ++i) {
+                bits[v * words + (row[i] >>> 6)] = 0;
+            }
+            degrees[v] = 0;
+        }
+        edgeCount = 0;
+    }
+
+    public boolean canAddEdge(int u, int v) {
+        if (degrees[u] > degrees[v]) {
+            int temp = u;
+            u = v;
+            v = temp;
+        }
+        int target = v * words;
+        int[] row = neighbours[u];
+        for (int i = 0; i < degrees[u]; ++i) {
+            int x = row[i];
+            if ((bits[target + (x >>> 6)] & (1L << x)) != 0) return false;
+            int[] second = neighbours[x];
+            for (int j = 0; j < degrees[x]; ++j) {
+                int y = second[j];
+                if ((bits[target + (y >>> 6)] & (1L << y)) != 0) return false;
+            }
+        }
+        return true;
+    }
+
+    private void append(int v, int u) {
+        if (degrees[v] == neighbours[v].length) {
+            neighbours[v] = Arrays.copyOf(neighbours[v], 2 * neighbours[v].length);
+        }
+        neighbours[v][degrees[v]++] = u;
+    }
+
+    private void detach(int v, int u) {
+        int[] row = neighbours[v];
+        for (int i = 0; i < degrees[v]; ++i) {
+            if (row[i] == u) {
+                row[i] = row[--degrees[v]];
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ru.ac.uniyar.utils.graph;
+
+import ru.ac.uniyar.model.Edge;
+
+import java.util.BitSet;
+
+public class BlockedEdges {
+    private final BitAdjacency adjacency;
+    private final int[] blockers;
+    private final BitSet addable;
+    private final EdgeSource source;
+    private EdgeOrder order;
+
+    public BlockedEdges(EdgeOrder order) {
+        this.order = order;
+        this.source = order.getSource();
+        this.adjacency = new BitAdjacency(source.getVertexCount());
+        this.blockers = new int[source.size()];
+        this.addable = new BitSet(order.size());
+        addable.set(0, order.size());
+    }
+
+    public BitAdjacency getAdjacency() {
+        return adjacency;
+    }
+
+    public Edge edgeAt(int rank) {
+        return order.edgeAt(rank);
+    }
+
+    public int nextAddable(int fromRank) {
+        return addable.nextSetBit(fromRank);
+    }
+
+    public boolean isAddable(int u, int v) {
+        if (u == v || adjacency.hasEdge(u, v)) return false;
+        int index = source.indexOf(u, v);
+        return index < 0 ? adjacency.canAddEdge(u, v) : blockers[index] == 0;
+    }
+
+    public void add(Edge edge) {
+        add(edge.getVertex1(), edge.getVertex2());
+    }
+
+    public void add(int u, int v) {
+        if (adjacency.hasEdge(u, v)) return;
+        updatePaths(u, v, 1);
+        adjacency.addEdge(u, v);
+        int index = source.indexOf(u, v);
+        if (index >= 0) addable.clear(order.rankOf(index));
+    }
+
+    public void remove(Edge edge) {
+        remove(edge.getVertex1(), edge.getVertex2());
+    }
+
+    public void remove(int u, int v) {
+        if (!adjacency.hasEdge(u, v)) return;
+        adjacency.removeEdge(u, v);
+        updatePaths(u, v, -1);
+        int index = source.indexOf(u, v);
+        if (index >= 0 && blockers[index] == 0) addable.set(order.rankOf(index));
+    }
+
+    public void reset(EdgeOrder order) {
+        if (order.getSource() != source) {
+            throw new IllegalArgumentException("Order is over a different edge source");
+        }
+        for (int u = 1; u <= adjacency.size(); ++u) {
+            while (adjacency.degree(u) > 0) {
+                remove(u, adjacency.neighbour(u, adjacency.degree(u) - 1));
+            }
+        }
+        this.order = order;
+        addable.set(0, order.size());
+    }
+
+    private void updatePaths(int u, int v, int delta) {
+        extendPaths(u, v, delta);
+        extendPaths(v, u, delta);
+        for (int i = 0; i < adjacency.degree(u); ++i) {
+            int x = adjacency.neighbour(u, i);
+            for (int j = 0; j < adjacency.degree(v); ++j) {
+                int y = adjacency.neighbour(v, j);
+                if (x != y) shift(x, y, delta);
+            }
+        }
+    }
+
+    private void extendPaths(int u, int v, int delta) {
+        for (int i = 0; i < adjacency.degree(v); ++i) {
+            int w = adjacency.neighbour(v, i);
+            if (w == u) continue;
+            shift(u, w, delta);
+            for (int j = 0; j < adjacency.degree(w); ++j) {
+                int z = adjacency.neighbour(w, j);
+                if (z != v && z != u) shift(u, z, delta);
+            }
+        }
+    }
+
+    private void shift(int a, int b, int delta) {
+        int index = source.indexOf(a, b);
+        if (index < 0) return;
+        int before = blockers[index];
+        blockers[index] = before + delta;
+        if (before == 0 && delta > 0) {
+            addable.clear(order.rankOf(index));
+        } else if (before + delta == 0 && !adjacency.hasEdge(a, b)) {
+            addable.set(order.rankOf(index));
+        }
+    }
+}
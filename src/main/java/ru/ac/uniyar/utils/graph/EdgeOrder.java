@@ -0,0 +1,83 @@
+package ru.ac.uniyar.utils.graph;
+
+import ru.ac.uniyar.model.Edge;
+
+import java.util.Random;
+
+public class EdgeOrder {
+    private static final int ROUNDS = 4;
+
+    private final EdgeSource source;
+    private final int size;
+    private final int halfBits;
+    private final int halfMask;
+    private final int[] keys = new int[ROUNDS];
+
+    EdgeOrder(EdgeSource source, long seed) {
+        this.source = source;
+        this.size = source.size();
+        if (size > 1 << 30) {
+            throw new IllegalArgumentException("Too many edges for a permutation view: " + size);
+        }
+        int bits = Math.max(2, 64 - Long.numberOfLeadingZeros(Math.max(size - 1, 1)));
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1 << halfBits) - 1;
+        Random random = new Random(seed);
+        for (int i = 0; i < ROUNDS; ++i) {
+            keys[i] = random.nextInt();
+        }
+    }
+
+    public EdgeSource getSource() {
+        return source;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int indexAt(int rank) {
+        int index = rank;
+        do {
+            index = forward(index);
+        } while (index >= size);
+        return index;
+    }
+
+    public int rankOf(int index) {
+        int rank = index;
+        do {
+            rank = backward(rank);
+        } while (rank >= size);
+        return rank;
+    }
+
+    public Edge edgeAt(int rank) {
+        return source.edge(indexAt(rank));
+    }
+
+    private int forward(int x) {
+        int left = x >>> halfBits, right = x & halfMask;
+        for (int i = 0; i < ROUNDS; ++i) {
+            int next = left ^ round(right, keys[i]);
+            left = right;
+            right = next;
+        }
+        return left << halfBits | right;
+    }
+
+    private int backward(int x) {
+        int left = x >>> halfBits, right = x & halfMask;
+        for (int i = ROUNDS - 1; i >= 0; --i) {
+            int previous = right ^ round(left, keys[i]);
+            right = left;
+            left = previous;
+        }
+        return left << halfBits | right;
+    }
+
+    private int round(int half, int key) {
+        int h = (half ^ key) * 0x9E3779B1;
+        return (h ^ (h >>> 15)) & halfMask;
+    }
+}
@@ -0,0 +1,116 @@
+package ru.ac.uniyar.utils.graph;
+
+import ru.ac.uniyar.model.Edge;
+import ru.ac.uniyar.model.Task;
+import ru.ac.uniyar.utils.distance.DistanceMatrix;
+import ru.ac.uniyar.utils.distance.PackedDistanceMatrix;
+import ru.ac.uniyar.utils.spatial.HeavyPairs;
+
+public class EdgeSource {
+    private final int n;
+    private final long[] pairs;
+    private final int[] weights;
+    private final long[] slotPairs;
+    private final int[] slotIndexes;
+
+    private EdgeSource(int n, long[] pairs, int[] weights, boolean indexed) {
+        this.n = n;
+        this.pairs = pairs;
+        this.weights = weights;
+        if (indexed) {
+            int capacity = Integer.highestOneBit(Math.max(16, 2 * pairs.length) - 1) << 1;
+            this.slotPairs = new long[capacity];
+            this.slotIndexes = new int[capacity];
+            for (int i = 0; i < pairs.length; ++i) {
+                int slot = find(pairs[i]);
+                slotPairs[slot] = pairs[i];
+                slotIndexes[slot] = i;
+            }
+        } else {
+            this.slotPairs = null;
+            this.slotIndexes = null;
+        }
+    }
+
+    public static EdgeSource allPairs(DistanceMatrix dist) {
+        int n = dist.size();
+        long length = (long) n * (n - 1) / 2;
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many vertexes for an edge source of all pairs: " + n);
+        }
+
+        long[] pairs = new long[(int) length];
+        int[] weights = new int[(int) length];
+        int index = 0;
+        for (int u = 1; u <= n; ++u) {
+            for (int v = u + 1; v <= n; ++v) {
+                pairs[index] = (long) u << 32 | v;
+                weights[index++] = dist.get(u, v);
+            }
+        }
+        return new EdgeSource(n, pairs, weights, false);
+    }
+
+    public static EdgeSource heaviest(Task task, int count) {
+        int n = task.getSize();
+        count = (int) Math.min(count, (long) n * (n - 1) / 2);
+        if (count > 1 << 29) {
+            throw new IllegalArgumentException("Too many heavy pairs for an edge source: " + count);
+        }
+
+        HeavyPairs generator = new HeavyPairs(task);
+        long[] pairs = new long[count];
+        int[] weights = new int[count];
+        for (int i = 0; i < count; ++i) {
+            long pair = generator.next();
+            pairs[i] = pair;
+            weights[i] = generator.distance((int) (pair >>> 32), (int) pair);
+        }
+        return new EdgeSource(n, pairs, weights, true);
+    }
+
+    public int getVertexCount() {
+        return n;
+    }
+
+    public int size() {
+        return pairs.length;
+    }
+
+    public int vertex1(int index) {
+        return (int) (pairs[index] >>> 32);
+    }
+
+    public int vertex2(int index) {
+        return (int) pairs[index];
+    }
+
+    public int weight(int index) {
+        return weights[index];
+    }
+
+    public Edge edge(int index) {
+        return new Edge(vertex1(index), vertex2(index), weights[index]);
+    }
+
+    public int indexOf(int u, int v) {
+        if (slotPairs == null) return PackedDistanceMatrix.index(n, u, v);
+        long pair = (long) Math.min(u, v) << 32 | Math.max(u, v);
+        int slot = find(pair);
+        return slotPairs[slot] == pair ? slotIndexes[slot] : -1;
+    }
+
+    public EdgeOrder shuffled(long seed) {
+        return new EdgeOrder(this, seed);
+    }
+
+    private int find(long pair) {
+        int mask = slotPairs.length - 1;
+        long h = pair * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (slotPairs[slot] != 0 && slotPairs[slot] != pair) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
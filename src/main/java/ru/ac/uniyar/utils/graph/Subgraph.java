@@ -0,0 +1,127 @@
+package ru.ac.uniyar.utils.graph;
+
+import ru.ac.uniyar.model.Edge;
+import ru.ac.uniyar.utils.IndexedMinHeap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class Subgraph {
+    private static final int ADDED = 0;
+    private static final int REMOVED = 1;
+    private static final int RECORD = 4;
+
+    private final BlockedEdges state;
+    private final int[] us;
+    private final int[] vs;
+    private final int[] weights;
+    private final int[] freeSlots;
+    private final IndexedMinHeap byWeight;
+    private int freeCount;
+    private long weight;
+
+    private int[] log = new int[64 * RECORD];
+    private int logSize;
+
+    public Subgraph(BlockedEdges state, int n) {
+        int capacity = reimanBound(n) + 1;
+        this.state = state;
+        this.us = new int[capacity];
+        this.vs = new int[capacity];
+        this.weights = new int[capacity];
+        this.freeSlots = new int[capacity];
+        this.byWeight = new IndexedMinHeap(capacity);
+        for (int slot = capacity - 1; slot >= 0; --slot) {
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    public void reset(EdgeOrder order) {
+        state.reset(order);
+        byWeight.clear();
+        freeCount = 0;
+        for (int slot = us.length - 1; slot >= 0; --slot) {
+            freeSlots[freeCount++] = slot;
+        }
+        weight = 0;
+        logSize = 0;
+    }
+
+    public BlockedEdges getState() {
+        return state;
+    }
+
+    public long getWeight() {
+        return weight;
+    }
+
+    public int size() {
+        return byWeight.size();
+    }
+
+    public void add(Edge edge) {
+        record(ADDED, insert(edge.getVertex1(), edge.getVertex2(), edge.getWeight()), 0, 0);
+    }
+
+    public void removeLightest() {
+        int slot = byWeight.poll();
+        record(REMOVED, us[slot], vs[slot], weights[slot]);
+        erase(slot);
+    }
+
+    public void commit() {
+        logSize = 0;
+    }
+
+    public void rollback() {
+        while (logSize > 0) {
+            logSize -= RECORD;
+            if (log[logSize] == ADDED) {
+                int slot = log[logSize + 1];
+                byWeight.remove(slot);
+                erase(slot);
+            } else {
+                insert(log[logSize + 1], log[logSize + 2], log[logSize + 3]);
+            }
+        }
+    }
+
+    public List<Edge> getEdges() {
+        List<Edge> edges = new ArrayList<>(size());
+        for (int slot = 0; slot < us.length; ++slot) {
+            if (byWeight.contains(slot)) edges.add(new Edge(us[slot], vs[slot], weights[slot]));
+        }
+        return edges;
+    }
+
+    private static int reimanBound(int n) {
+        return (int) (n / 4.0 * (1 + Math.sqrt(4.0 * n - 3)));
+    }
+
+    private int insert(int u, int v, int w) {
+        int slot = freeSlots[--freeCount];
+        us[slot] = u;
+        vs[slot] = v;
+        weights[slot] = w;
+        byWeight.push(slot, w);
+        state.add(u, v);
+        weight += w;
+        return slot;
+    }
+
+    private void erase(int slot) {
+        state.remove(us[slot], vs[slot]);
+        weight -= weights[slot];
+        freeSlots[freeCount++] = slot;
+    }
+
+    private void record(int kind, int a, int b, int c) {
+        if (logSize == log.length) log = Arrays.copyOf(log, 2 * log.length);
+        log[logSize] = kind;
+        log[logSize + 1] = a;
+        log[logSize + 2] = b;
+        log[logSize + 3] = c;
+        logSize += RECORD;
+    }
+}
@@ -0,0 +1,64 @@
+package ru.ac.uniyar.utils.sink;
+
+import ru.ac.uniyar.model.Edge;
+import ru.ac.uniyar.model.results.C4C3FreeResult;
+import ru.ac.uniyar.model.results.LCMSTResult;
+import ru.ac.uniyar.model.results.VRPResult;
+
+import java.util.List;
+
+@FunctionalInterface
+public interface ResultEncoder<R> {
+    byte[] EDGE = ByteEncoder.utf8("e\t");
+    byte[] PROBLEM = ByteEncoder.utf8("p\tedge\t");
+    byte[] COMMA = ByteEncoder.utf8(",");
+
+    void encode(R result, ByteEncoder out);
+
+    static ResultEncoder<LCMSTResult> lcmst() {
+        byte[] weight = ByteEncoder.utf8("c\tВес\tдерева\t=\t");
+        byte[] leaves = ByteEncoder.utf8(",\tчисло\tлистьев\t=\t");
+        return (result, out) -> {
+            out.text(weight).number(result.getWeight()).text(leaves).number(result.getLeaves()).text(COMMA).newline();
+            out.text(PROBLEM).number(result.getEdges().size() + 1).tab().number(result.getEdges().size()).newline();
+            edges(result.getEdges(), out);
+        };
+    }
+
+    static ResultEncoder<VRPResult> vrp(int n) {
+        byte[] depot = ByteEncoder.utf8("c\tДепо\t=\t");
+        byte[] longest = ByteEncoder.utf8(",\tсамый\tдлинный\tцикл\t=\t");
+        byte[] total = ByteEncoder.utf8(",\tсуммарная\tдлина\t=\t");
+        return (result, out) -> {
+            int edges = 0;
+            for (List<Integer> way : result.getWays().values()) {
+                edges += way.size() - 1;
+            }
+            out.text(depot).number(result.getDepot()).text(longest).number(result.getMaxCycleWeight())
+                    .text(total).number(result.getTotalWeight()).newline();
+            out.text(PROBLEM).number(n).tab().number(edges).newline();
+            for (List<Integer> way : result.getWays().values()) {
+                for (int i = 0; i < way.size() - 1; ++i) {
+                    out.text(EDGE).number(way.get(i)).tab().number(way.get(i + 1)).newline();
+                }
+            }
+        };
+    }
+
+    static ResultEncoder<C4C3FreeResult> c4c3Free(int n) {
+        byte[] weight = ByteEncoder.utf8("c\tВес\tподграфа\t=\t");
+        byte[] edges = ByteEncoder.utf8(",\tчисло\tребер\t=\t");
+        return (result, out) -> {
+            out.text(weight).number(result.getWeight()).text(edges).number(result.getEdges().size())
+                    .text(COMMA).newline();
+            out.text(PROBLEM).number(n).tab().number(result.getEdges().size()).newline();
+            edges(result.getEdges(), out);
+        };
+    }
+
+    private static void edges(List<Edge> edges, ByteEncoder out) {
+        for (Edge edge : edges) {
+            out.text(EDGE).number(edge.getVertex1()).tab().number(edge.getVertex2()).newline();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package ru.ac.uniyar.utils.sink;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+public class ResultSink<R> implements AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final Path path;
+    private final Comparator<R> order;
+    private final Predicate<R> validator;
+    private final ResultEncoder<R> encoder;
+    private final BlockingQueue<R> queue;
+    private final AtomicReference<R> offered = new AtomicReference<>();
+    private final ByteEncoder bytes = new ByteEncoder();
+    private final Thread writer;
+    private volatile boolean closed;
+    private volatile R written;
+
+    public ResultSink(Path path, R stored, Comparator<R> order, Predicate<R> validator, ResultEncoder<R> encoder) {
+        this(path, stored, order, validator, encoder, DEFAULT_CAPACITY);
+    }
+
+    public ResultSink(Path path, R stored, Comparator<R> order, Predicate<R> validator, ResultEncoder<R> encoder,
+                      int capacity) {
+        this.path = path;
+        this.order = order;
+        this.validator = validator;
+        this.encoder = encoder;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        if (stored != null && validator.test(stored)) {
+            offered.set(stored);
+            written = stored;
+        }
+        this.writer = new Thread(this::drain, "result-sink-" + path.getFileName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Validates on the calling thread, so that only valid results are published and an invalid one never shadows a
+     * later valid result. Results no better than the last published one are dropped before validation.
+     */
+    public void offer(R result) {
+        if (result == null || closed || !isBetter(result, offered.get())) return;
+        if (!validator.test(result)) {
+            System.err.println("Dropping an invalid result instead of writing it");
+            return;
+        }
+        R current;
+        do {
+            current = offered.get();
+            if (!isBetter(result, current)) return;
+        } while (!offered.compareAndSet(current, result));
+        queue.offer(result);
+    }
+
+    public R getWritten() {
+        return written;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drain() {
+        while (!closed || !queue.isEmpty()) {
+            try {
+                R result = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (result != null) write(result);
+                if (queue.isEmpty()) write(offered.get());
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+        write(offered.get());
+    }
+
+    private boolean isBetter(R result, R than) {
+        return than == null || order.compare(result, than) < 0;
+    }
+
+    private void write(R result) {
+        if (result == null || !isBetter(result, written)) return;
+        encoder.encode(result, bytes.clear());
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            bytes.writeTo(path);
+            written = result;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
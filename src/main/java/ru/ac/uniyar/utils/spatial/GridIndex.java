@@ -0,0 +1,170 @@
+package ru.ac.uniyar.utils.spatial;
+
+import ru.ac.uniyar.model.Task;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+public class GridIndex {
+    private static final int POINTS_PER_CELL = 2;
+
+    private final int[] xs;
+    private final int[] ys;
+    private final int minX;
+    private final int minY;
+    private final int cellSize;
+    private final int columns;
+    private final int rows;
+    private final int[] cellStart;
+    private final int[] cellItems;
+    private final int[] cellAlive;
+    private final boolean[] removed;
+    private int alive;
+
+    public GridIndex(Task task, Collection<Integer> vertices) {
+        int n = task.getSize();
+        this.xs = new int[n + 1];
+        this.ys = new int[n + 1];
+        this.removed = new boolean[n + 1];
+
+        int loX = Integer.MAX_VALUE, hiX = Integer.MIN_VALUE, loY = Integer.MAX_VALUE, hiY = Integer.MIN_VALUE;
+        for (int v : vertices) {
+            xs[v] = task.getX(v);
+            ys[v] = task.getY(v);
+            loX = Math.min(loX, xs[v]);
+            hiX = Math.max(hiX, xs[v]);
+            loY = Math.min(loY, ys[v]);
+            hiY = Math.max(hiY, ys[v]);
+        }
+        if (vertices.isEmpty()) {
+            loX = hiX = loY = hiY = 0;
+        }
+
+        long area = (long) (hiX - loX + 1) * (hiY - loY + 1);
+        this.minX = loX;
+        this.minY = loY;
+        this.cellSize = (int) Math.max(1, Math.ceil(Math.sqrt((double) area * POINTS_PER_CELL / Math.max(1, vertices.size()))));
+        this.columns = (hiX - loX) / cellSize + 1;
+        this.rows = (hiY - loY) / cellSize + 1;
+
+        this.cellStart = new int[columns * rows + 1];
+        this.cellAlive = new int[columns * rows];
+        for (int v : vertices) {
+            cellStart[cellOf(v) + 1]++;
+        }
+        for (int c = 0; c < columns * rows; ++c) {
+            cellAlive[c] = cellStart[c + 1];
+            cellStart[c + 1] += cellStart[c];
+        }
+        this.cellItems = new int[vertices.size()];
+        int[] fill = Arrays.copyOf(cellStart, columns * rows);
+        for (int v : vertices) {
+            cellItems[fill[cellOf(v)]++] = v;
+        }
+        for (int c = 0; c < columns * rows; ++c) {
+            Arrays.sort(cellItems, cellStart[c], cellStart[c + 1]);
+        }
+        this.alive = vertices.size();
+    }
+
+    public int size() {
+        return alive;
+    }
+
+    public void remove(int v) {
+        if (removed[v]) return;
+        removed[v] = true;
+        cellAlive[cellOf(v)]--;
+        --alive;
+    }
+
+    public int nearest(int v) {
+        return nearest(xs[v], ys[v], v);
+    }
+
+    public int nearest(int x, int y) {
+        return nearest(x, y, -1);
+    }
+
+    public int nearest(int x, int y, int exclude) {
+        int best = -1, bestDist = Integer.MAX_VALUE;
+        int cx = column(x), cy = row(y);
+        int maxRing = Math.max(Math.max(cx, columns - 1 - cx), Math.max(cy, rows - 1 - cy));
+
+        for (int r = 0; r <= maxRing; ++r) {
+            for (int gy = cy - r; gy <= cy + r; ++gy) {
+                if (gy < 0 || gy >= rows) continue;
+                boolean edgeRow = gy == cy - r || gy == cy + r;
+                int step = edgeRow || r == 0 ? 1 : 2 * r;
+                for (int gx = cx - r; gx <= cx + r; gx += step) {
+                    if (gx >= 0 && gx < columns) {
+                        int cell = gy * columns + gx;
+                        if (cellAlive[cell] == 0) continue;
+                        for (int i = cellStart[cell]; i < cellStart[cell + 1]; ++i) {
+                            int u = cellItems[i];
+                            if (removed[u] || u == exclude) continue;
+                            int d = Math.abs(xs[u] - x) + Math.abs(ys[u] - y);
+                            if (d < bestDist || (d == bestDist && u < best)) {
+                                bestDist = d;
+                                best = u;
+                            }
+                        }
+                    }
+                }
+            }
+            if (best != -1 && bestDist < (long) r * cellSize) break;
+        }
+        return best;
+    }
+
+    public int[] kNearest(int v, int k) {
+        int[] found = new int[k];
+        int[] foundDist = new int[k];
+        int count = 0;
+        int x = xs[v], y = ys[v];
+        int cx = column(x), cy = row(y);
+        int maxRing = Math.max(Math.max(cx, columns - 1 - cx), Math.max(cy, rows - 1 - cy));
+
+        for (int r = 0; r <= maxRing; ++r) {
+            for (int gy = cy - r; gy <= cy + r; ++gy) {
+                if (gy < 0 || gy >= rows) continue;
+                boolean edgeRow = gy == cy - r || gy == cy + r;
+                int step = edgeRow || r == 0 ? 1 : 2 * r;
+                for (int gx = cx - r; gx <= cx + r; gx += step) {
+                    if (gx >= 0 && gx < columns) {
+                        int cell = gy * columns + gx;
+                        for (int i = cellStart[cell]; i < cellStart[cell + 1]; ++i) {
+                            int u = cellItems[i];
+                            if (removed[u] || u == v) continue;
+                            int d = Math.abs(xs[u] - x) + Math.abs(ys[u] - y);
+                            if (count == k && (d > foundDist[k - 1] || (d == foundDist[k - 1] && u > found[k - 1]))) continue;
+
+                            int pos = count < k ? count++ : k - 1;
+                            while (pos > 0 && (foundDist[pos - 1] > d || (foundDist[pos - 1] == d && found[pos - 1] > u))) {
+                                found[pos] = found[pos - 1];
+                                foundDist[pos] = foundDist[pos - 1];
+                                --pos;
+                            }
+                            found[pos] = u;
+                            foundDist[pos] = d;
+                        }
+                    }
+                }
+            }
+            if (count == k && foundDist[k - 1] < (long) r * cellSize) break;
+        }
+        return count == k ? found : Arrays.copyOf(found, count);
+    }
+
+    private int cellOf(int v) {
+        return row(ys[v]) * columns + column(xs[v]);
+    }
+
+    private int column(int x) {
+        return Math.min(columns - 1, Math.max(0, (x - minX) / cellSize));
+    }
+
+    private int row(int y) {
+        return Math.min(rows - 1, Math.max(0, (y - minY) / cellSize));
+    }
+}
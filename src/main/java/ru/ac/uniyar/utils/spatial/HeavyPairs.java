@@ -0,0 +1,96 @@
+package ru.ac.uniyar.utils.spatial;
+
+import ru.ac.uniyar.model.Task;
+import ru.ac.uniyar.utils.IndexedMinHeap;
+
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+public class HeavyPairs {
+    private static final int PROJECTIONS = 4;
+
+    private final int n;
+    private final int[][] projection;
+    private final int[][] order;
+    private final int[][] cursor;
+    private final IndexedMinHeap heads;
+    private final int[] headProjection;
+
+    public HeavyPairs(Task task) {
+        this.n = task.getSize();
+        this.projection = new int[PROJECTIONS][n + 1];
+        this.order = new int[PROJECTIONS][];
+        this.cursor = new int[PROJECTIONS][n + 1];
+        this.heads = new IndexedMinHeap(n);
+        this.headProjection = new int[n + 1];
+
+        for (int v = 1; v <= n; ++v) {
+            int sum = task.getX(v) + task.getY(v), difference = task.getX(v) - task.getY(v);
+            projection[0][v] = sum;
+            projection[1][v] = -sum;
+            projection[2][v] = difference;
+            projection[3][v] = -difference;
+        }
+        for (int k = 0; k < PROJECTIONS; ++k) {
+            int[] values = projection[k];
+            order[k] = IntStream.rangeClosed(1, n).boxed()
+                    .sorted(Comparator.comparingInt((Integer v) -> values[v]).reversed())
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        for (int u = 1; u <= n; ++u) {
+            settle(u);
+        }
+    }
+
+    public long next() {
+        if (heads.isEmpty()) return -1;
+        int u = heads.peek();
+        int k = headProjection[u];
+        int v = order[k][cursor[k][u]++];
+        settle(u);
+        return (long) u << 32 | v;
+    }
+
+    public int distance(int u, int v) {
+        int best = 0;
+        for (int k = 0; k < PROJECTIONS; ++k) {
+            best = Math.max(best, projection[k][v] - projection[k][u]);
+        }
+        return best;
+    }
+
+    private void settle(int u) {
+        while (true) {
+            int best = -1, bestValue = Integer.MIN_VALUE;
+            for (int k = 0; k < PROJECTIONS; ++k) {
+                if (cursor[k][u] == n) continue;
+                int value = projection[k][order[k][cursor[k][u]]] - projection[k][u];
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = k;
+                }
+            }
+            if (best < 0) {
+                if (heads.contains(u)) heads.poll();
+                return;
+            }
+
+            int v = order[best][cursor[best][u]];
+            if (v > u && isFirstMaximum(u, v, best, bestValue)) {
+                headProjection[u] = best;
+                heads.push(u, -bestValue);
+                return;
+            }
+            ++cursor[best][u];
+        }
+    }
+
+    private boolean isFirstMaximum(int u, int v, int k, int value) {
+        for (int other = 0; other < PROJECTIONS; ++other) {
+            int difference = projection[other][v] - projection[other][u];
+            if (difference > value || (difference == value && other < k)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,76 @@
+package ru.ac.uniyar.utils.spatial;
+
+import ru.ac.uniyar.model.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class NeighbourLists {
+    public static final int DEFAULT_K = 16;
+
+    private final int k;
+    private final int[][] neighbours;
+
+    private NeighbourLists(int k, int[][] neighbours) {
+        this.k = k;
+        this.neighbours = neighbours;
+    }
+
+    public static NeighbourLists build(Task task) {
+        return build(task, DEFAULT_K);
+    }
+
+    public static NeighbourLists build(Task task, int k) {
+        int n = task.getSize();
+        List<Integer> vertices = new ArrayList<>(n);
+        for (int i = 1; i <= n; ++i) vertices.add(i);
+
+        GridIndex index = new GridIndex(task, vertices);
+        int effectiveK = Math.max(0, Math.min(k, n - 1));
+        int[][] neighbours = new int[n + 1][];
+        neighbours[0] = new int[0];
+        IntStream.rangeClosed(1, n).parallel().forEach(v -> neighbours[v] = index.kNearest(v, effectiveK));
+        return new NeighbourLists(effectiveK, neighbours);
+    }
+
+    public NeighbourLists symmetric() {
+        int n = neighbours.length - 1;
+        int[] counts = new int[n + 1];
+        for (int v = 1; v <= n; ++v) {
+            for (int u : neighbours[v]) {
+                counts[v]++;
+                if (!contains(u, v)) counts[u]++;
+            }
+        }
+
+        int[][] union = new int[n + 1][];
+        union[0] = new int[0];
+        for (int v = 1; v <= n; ++v) {
+            union[v] = Arrays.copyOf(neighbours[v], counts[v]);
+            counts[v] = neighbours[v].length;
+        }
+        for (int v = 1; v <= n; ++v) {
+            for (int u : neighbours[v]) {
+                if (!contains(u, v)) union[u][counts[u]++] = v;
+            }
+        }
+        return new NeighbourLists(k, union);
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public int[] get(int v) {
+        return neighbours[v];
+    }
+
+    public boolean contains(int v, int u) {
+        for (int w : neighbours[v]) {
+            if (w == u) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,28 @@
+package ru.ac.uniyar.utils.telemetry;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class Counter {
+    private final String name;
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void increment() {
+        if (Telemetry.ENABLED) value.increment();
+    }
+
+    public void add(long delta) {
+        if (Telemetry.ENABLED) value.add(delta);
+    }
+
+    public long sum() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,31 @@
+package ru.ac.uniyar.utils.telemetry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class Gauge {
+    private final String name;
+    private final AtomicLong value = new AtomicLong();
+    private volatile boolean set;
+
+    Gauge(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void set(long value) {
+        if (!Telemetry.ENABLED) return;
+        this.value.set(value);
+        set = true;
+    }
+
+    public boolean isSet() {
+        return set;
+    }
+
+    public long get() {
+        return value.get();
+    }
+}
@@ -0,0 +1,52 @@
+package ru.ac.uniyar.utils.telemetry;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Histogram {
+    private static final int BUCKETS = 64;
+
+    private final String name;
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    Histogram(String name) {
+        this.name = name;
+        for (int b = 0; b < BUCKETS; ++b) buckets[b] = new LongAdder();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long value) {
+        if (!Telemetry.ENABLED) return;
+        long clamped = Math.max(0, value);
+        buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(clamped))].increment();
+        sum.add(clamped);
+        max.accumulate(clamped);
+    }
+
+    public void recordSince(long startNanos) {
+        if (Telemetry.ENABLED) record(System.nanoTime() - startNanos);
+    }
+
+    public long[] counts() {
+        long[] counts = new long[BUCKETS];
+        for (int b = 0; b < BUCKETS; ++b) counts[b] = buckets[b].sum();
+        return counts;
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    static long upperBound(int bucket) {
+        return bucket == 0 ? 0 : bucket >= 63 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
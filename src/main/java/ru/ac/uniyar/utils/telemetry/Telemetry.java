@@ -0,0 +1,90 @@
+package ru.ac.uniyar.utils.telemetry;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enabled with {@code -Dtelemetry=<file>|stdout|stderr}, exported every {@code -Dtelemetry.period} ms.
+ */
+public final class Telemetry {
+    public static final boolean ENABLED = System.getProperty("telemetry") != null;
+
+    private static final long PERIOD_MS = Long.getLong("telemetry.period", 1000);
+    private static final Map<String, Counter> counters = new ConcurrentSkipListMap<>();
+    private static final Map<String, Gauge> gauges = new ConcurrentSkipListMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentSkipListMap<>();
+    private static TelemetryExporter exporter;
+
+    private Telemetry() {
+    }
+
+    public static Counter counter(String name) {
+        return register(counters.computeIfAbsent(name, Counter::new));
+    }
+
+    public static Gauge gauge(String name) {
+        return register(gauges.computeIfAbsent(name, Gauge::new));
+    }
+
+    public static Histogram histogram(String name) {
+        return register(histograms.computeIfAbsent(name, Histogram::new));
+    }
+
+    public static long now() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    public static void flush() {
+        if (ENABLED) exporter().export();
+    }
+
+    static Map<String, Counter> counters() {
+        return counters;
+    }
+
+    static Map<String, Gauge> gauges() {
+        return gauges;
+    }
+
+    static Map<String, Histogram> histograms() {
+        return histograms;
+    }
+
+    private static <T> T register(T metric) {
+        if (ENABLED) exporter();
+        return metric;
+    }
+
+    private static synchronized TelemetryExporter exporter() {
+        if (exporter == null) {
+            exporter = new TelemetryExporter(openOutput(System.getProperty("telemetry")));
+            ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "telemetry");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleAtFixedRate(exporter::export, PERIOD_MS, PERIOD_MS, TimeUnit.MILLISECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(exporter::export, "telemetry-flush"));
+        }
+        return exporter;
+    }
+
+    private static PrintWriter openOutput(String target) {
+        if (target.equals("stdout")) return new PrintWriter(System.out, true);
+        if (target.equals("stderr")) return new PrintWriter(System.err, true);
+        try {
+            return new PrintWriter(new OutputStreamWriter(new FileOutputStream(target, true), StandardCharsets.UTF_8), true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open telemetry output " + target, e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package ru.ac.uniyar.utils.telemetry;
+
+import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+class TelemetryExporter {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final PrintWriter out;
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Long> previous = new HashMap<>();
+    private long previousNanos = startNanos;
+
+    TelemetryExporter(PrintWriter out) {
+        this.out = out;
+    }
+
+    synchronized void export() {
+        long nanos = System.nanoTime();
+        double seconds = Math.max(1e-9, (nanos - previousNanos) / 1e9);
+        StringBuilder line = new StringBuilder(256);
+        line.append("{\"timeMs\":").append(System.currentTimeMillis())
+                .append(",\"uptimeMs\":").append((nanos - startNanos) / 1_000_000);
+
+        line.append(",\"counters\":{");
+        boolean first = true;
+        for (Counter counter : Telemetry.counters().values()) {
+            long total = counter.sum();
+            long delta = total - previous.getOrDefault(counter.getName(), 0L);
+            previous.put(counter.getName(), total);
+            if (!first) line.append(',');
+            first = false;
+            line.append('"').append(counter.getName()).append("\":{\"total\":").append(total)
+                    .append(",\"perSecond\":").append(Math.round(delta / seconds)).append('}');
+        }
+
+        line.append("},\"gauges\":{");
+        first = true;
+        for (Gauge gauge : Telemetry.gauges().values()) {
+            if (!gauge.isSet()) continue;
+            if (!first) line.append(',');
+            first = false;
+            line.append('"').append(gauge.getName()).append("\":").append(gauge.get());
+        }
+
+        line.append("},\"histograms\":{");
+        first = true;
+        for (Histogram histogram : Telemetry.histograms().values()) {
+            long[] counts = histogram.counts();
+            long count = 0;
+            for (long c : counts) count += c;
+            if (count == 0) continue;
+            if (!first) line.append(',');
+            first = false;
+            line.append('"').append(histogram.getName()).append("\":{\"count\":").append(count)
+                    .append(",\"mean\":").append(histogram.sum() / count);
+            for (double q : QUANTILES) {
+                line.append(",\"p").append(Math.round(q * 100)).append("\":").append(quantile(counts, count, q));
+            }
+            line.append(",\"max\":").append(histogram.max()).append('}');
+        }
+        line.append("}}");
+
+        previousNanos = nanos;
+        out.println(line);
+    }
+
+    private static long quantile(long[] counts, long count, double q) {
+        long rank = (long) Math.ceil(q * count);
+        long seen = 0;
+        for (int b = 0; b < counts.length; ++b) {
+            seen += counts[b];
+            if (seen >= rank) return Histogram.upperBound(b);
+        }
+        return Histogram.upperBound(counts.length - 1);
+    }
+}
@@ -0,0 +1,220 @@
+package ru.ac.uniyar.utils.validation;
+
+import ru.ac.uniyar.model.Edge;
+import ru.ac.uniyar.model.Task;
+import ru.ac.uniyar.model.results.C4C3FreeResult;
+import ru.ac.uniyar.utils.validation.C4C3FreeVerdict.Violation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+public class C4C3FreeValidator {
+    private static final int MAX_BITSET_VERTICES = 1 << 14;
+
+    private final int n;
+    private final int[] start;
+    private final int[] neighbours;
+    private final AtomicReference<C4C3FreeVerdict> violation = new AtomicReference<>();
+    private final LongAdder pairsChecked = new LongAdder();
+    private PairSet pairs;
+
+    private C4C3FreeValidator(int n, int[] start, int[] neighbours) {
+        this.n = n;
+        this.start = start;
+        this.neighbours = neighbours;
+    }
+
+    public static C4C3FreeVerdict validate(Task task, C4C3FreeResult result) {
+        return validate(task, result, true);
+    }
+
+    public static C4C3FreeVerdict validate(Task task, C4C3FreeResult result, boolean parallel) {
+        int n = task.getSize();
+        List<Edge> edges = result.getEdges();
+        long weight = 0;
+
+        int[] degrees = new int[n + 2];
+        for (Edge edge : edges) {
+            int u = edge.getVertex1(), v = edge.getVertex2();
+            if (u < 1 || u > n || v < 1 || v > n) return verdict(Violation.INVALID_VERTEX, edges, 0, weight, u, v);
+            if (u == v) return verdict(Violation.LOOP, edges, 0, weight, u, v);
+            ++degrees[u];
+            ++degrees[v];
+            weight += Math.abs(task.getX(u) - task.getX(v)) + Math.abs(task.getY(u) - task.getY(v));
+        }
+
+        int[] start = new int[n + 2];
+        for (int v = 1; v <= n; ++v) start[v + 1] = start[v] + degrees[v];
+        int[] fill = Arrays.copyOf(start, n + 2);
+        int[] neighbours = new int[2 * edges.size()];
+        for (Edge edge : edges) {
+            neighbours[fill[edge.getVertex1()]++] = edge.getVertex2();
+            neighbours[fill[edge.getVertex2()]++] = edge.getVertex1();
+        }
+        for (int v = 1; v <= n; ++v) {
+            Arrays.sort(neighbours, start[v], start[v + 1]);
+            for (int i = start[v] + 1; i < start[v + 1]; ++i) {
+                if (neighbours[i] == neighbours[i - 1]) {
+                    return verdict(Violation.DUPLICATE_EDGE, edges, 0, weight, v, neighbours[i]);
+                }
+            }
+        }
+
+        C4C3FreeValidator validator = new C4C3FreeValidator(n, start, neighbours);
+        C4C3FreeVerdict cycle = parallel ? validator.findCycle() : validator.findCycleSequentially();
+        if (cycle != null) {
+            return verdict(cycle.getViolation(), edges, validator.pairsChecked.sum(), weight, cycle.getWitness());
+        }
+        if (weight != result.getWeight()) {
+            return verdict(Violation.WEIGHT_MISMATCH, edges, validator.pairsChecked.sum(), weight);
+        }
+        return verdict(Violation.NONE, edges, validator.pairsChecked.sum(), weight);
+    }
+
+    private C4C3FreeVerdict findCycle() {
+        long totalPairs = 0;
+        for (int v = 1; v <= n; ++v) {
+            long degree = start[v + 1] - start[v];
+            totalPairs += degree * (degree - 1) / 2;
+        }
+        pairs = n <= MAX_BITSET_VERTICES
+                ? new BitPairSet(n)
+                : new HashPairSet(Math.min(totalPairs, (long) n * (n - 1) / 2 + 1));
+
+        IntStream.rangeClosed(1, n).parallel().forEach(this::scanCentre);
+        return violation.get();
+    }
+
+    private C4C3FreeVerdict findCycleSequentially() {
+        int[] adjacentTo = new int[n + 1];
+        int[] reachedFrom = new int[n + 1];
+        int[] via = new int[n + 1];
+        long checked = 0;
+        try {
+            for (int u = 1; u <= n; ++u) {
+                for (int i = start[u]; i < start[u + 1]; ++i) {
+                    adjacentTo[neighbours[i]] = u;
+                }
+                for (int i = start[u]; i < start[u + 1]; ++i) {
+                    int w = neighbours[i];
+                    for (int j = start[w]; j < start[w + 1]; ++j) {
+                        int b = neighbours[j];
+                        if (b == u) continue;
+                        ++checked;
+                        if (adjacentTo[b] == u) return cycle(Violation.TRIANGLE, u, w, b);
+                        if (reachedFrom[b] == u) return cycle(Violation.SQUARE, u, via[b], b, w);
+                        reachedFrom[b] = u;
+                        via[b] = w;
+                    }
+                }
+            }
+            return null;
+        } finally {
+            pairsChecked.add(checked);
+        }
+    }
+
+    private void scanCentre(int w) {
+        long checked = 0;
+        for (int i = start[w]; i < start[w + 1] && violation.get() == null; ++i) {
+            int a = neighbours[i];
+            for (int j = i + 1; j < start[w + 1]; ++j) {
+                int b = neighbours[j];
+                ++checked;
+                if (adjacent(a, b)) {
+                    violation.compareAndSet(null, cycle(Violation.TRIANGLE, a, w, b));
+                    break;
+                }
+                if (!pairs.add(a, b)) {
+                    violation.compareAndSet(null, cycle(Violation.SQUARE, a, w, b, otherCentre(a, b, w)));
+                    break;
+                }
+            }
+        }
+        pairsChecked.add(checked);
+    }
+
+    private boolean adjacent(int a, int b) {
+        return Arrays.binarySearch(neighbours, start[a], start[a + 1], b) >= 0;
+    }
+
+    private int otherCentre(int a, int b, int w) {
+        int i = start[a], j = start[b];
+        while (i < start[a + 1] && j < start[b + 1]) {
+            if (neighbours[i] < neighbours[j]) {
+                ++i;
+            } else if (neighbours[i] > neighbours[j]) {
+                ++j;
+            } else {
+                if (neighbours[i] != w) return neighbours[i];
+                ++i;
+                ++j;
+            }
+        }
+        return -1;
+    }
+
+    private static C4C3FreeVerdict cycle(Violation violation, int... witness) {
+        return new C4C3FreeVerdict(violation, witness, 0, 0, 0);
+    }
+
+    private static C4C3FreeVerdict verdict(Violation violation, List<Edge> edges, long pairsChecked, long weight,
+                                           int... witness) {
+        return new C4C3FreeVerdict(violation, witness, edges.size(), pairsChecked, weight);
+    }
+
+    private interface PairSet {
+        boolean add(int a, int b);
+    }
+
+    private static class BitPairSet implements PairSet {
+        private final int n;
+        private final AtomicLongArray words;
+
+        BitPairSet(int n) {
+            this.n = n;
+            this.words = new AtomicLongArray((int) (((long) (n + 1) * (n + 1) + 63) >>> 6));
+        }
+
+        @Override
+        public boolean add(int a, int b) {
+            long bit = (long) Math.min(a, b) * (n + 1) + Math.max(a, b);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            return (words.getAndAccumulate(word, mask, (x, y) -> x | y) & mask) == 0;
+        }
+    }
+
+    private static class HashPairSet implements PairSet {
+        private final AtomicLongArray slots;
+        private final int mask;
+
+        HashPairSet(long expected) {
+            int capacity = Integer.highestOneBit((int) Math.min(1 << 30, Math.max(16, 2 * expected)) - 1) << 1;
+            this.slots = new AtomicLongArray(capacity);
+            this.mask = capacity - 1;
+        }
+
+        @Override
+        public boolean add(int a, int b) {
+            long key = ((long) Math.min(a, b) << 32 | Math.max(a, b)) + 1;
+            for (int slot = (int) (mix(key) & mask); ; slot = (slot + 1) & mask) {
+                long current = slots.get(slot);
+                if (current == key) return false;
+                if (current == 0) {
+                    if (slots.compareAndSet(slot, 0, key)) return true;
+                    if (slots.get(slot) == key) return false;
+                }
+            }
+        }
+
+        private static long mix(long key) {
+            key *= 0x9E3779B97F4A7C15L;
+            return key ^ (key >>> 29);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.ac.uniyar.utils.validation;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+@Getter
+@AllArgsConstructor
+public class C4C3FreeVerdict {
+    public enum Violation {
+        NONE,
+        INVALID_VERTEX,
+        LOOP,
+        DUPLICATE_EDGE,
+        TRIANGLE,
+        SQUARE,
+        WEIGHT_MISMATCH
+    }
+
+    private final Violation violation;
+    private final int[] witness;
+    private final int edges;
+    private final long pairsChecked;
+    private final long computedWeight;
+
+    public boolean isValid() {
+        return violation == Violation.NONE;
+    }
+
+    @Override
+    public String toString() {
+        if (isValid()) return "VALID";
+        String cycle = Arrays.stream(witness).mapToObj(String::valueOf).collect(Collectors.joining("-"));
+        return "NOT VALID (%s%s)".formatted(violation.name().toLowerCase().replace('_', ' '),
+                cycle.isEmpty() ? "" : ": " + cycle);
+    }
+}